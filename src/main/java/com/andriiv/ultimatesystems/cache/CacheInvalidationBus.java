@@ -0,0 +1,305 @@
+package com.andriiv.ultimatesystems.cache;
+
+import com.andriiv.ultimatesystems.exception.CacheInvalidationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Propagates cache invalidations to every node of the deployment.
+ * <p>
+ * Invalidations are applied to the local cache right away, then collected for a short window,
+ * de-duplicated and published as one numbered batch. Callers block until their batch was published,
+ * so a write is acknowledged only after every node dropped the stale entries; if the transport fails
+ * or times out the write fails with {@link CacheInvalidationException}. A receiver that sees a gap or
+ * a replay in a node's sequence cannot tell what it missed and clears its whole cache.
+ * <p>
+ * Every node also publishes a heartbeat with its last sequence, so a lost batch is noticed without
+ * waiting for the next write. A peer that stays silent longer than {@code peer-timeout-ms} clears the
+ * cache and disables it until the peer is heard from again or is forgotten after {@code peer-expiry-ms};
+ * a node that shuts down publishes a leave notice so that it is forgotten right away.
+ * <p>
+ * The transport is the {@link InvalidationTransport} bean if one is defined, otherwise an in-process
+ * {@link LoopbackInvalidationTransport}.
+ *
+ * @author Roman_Andriiv
+ */
+@Component
+public class CacheInvalidationBus {
+
+    private static final Logger log = LoggerFactory.getLogger(CacheInvalidationBus.class);
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private final ResponseByteCache responseByteCache;
+    private final InvalidationTransport transport;
+    private final long batchWindowMs;
+    private final long ackTimeoutMs;
+    private final int maxBatchKeys;
+    private final long peerTimeoutNanos;
+    private final long peerExpiryNanos;
+
+    private final ScheduledExecutorService publisher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "cache-invalidation-bus");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Map<String, Peer> peers = new ConcurrentHashMap<>();
+
+    private final Object lock = new Object();
+    private Set<String> pendingKeys = new HashSet<>();
+    private boolean pendingClear;
+    private CompletableFuture<Void> pendingBatch;
+    private long sequence;
+
+    @Autowired
+    public CacheInvalidationBus(ResponseByteCache responseByteCache,
+                                ObjectProvider<InvalidationTransport> transport,
+                                @Value("${cache.invalidation.batch-window-ms:5}") long batchWindowMs,
+                                @Value("${cache.invalidation.ack-timeout-ms:2000}") long ackTimeoutMs,
+                                @Value("${cache.invalidation.max-batch-keys:10000}") int maxBatchKeys,
+                                @Value("${cache.invalidation.heartbeat-ms:1000}") long heartbeatMs,
+                                @Value("${cache.invalidation.peer-timeout-ms:3000}") long peerTimeoutMs,
+                                @Value("${cache.invalidation.peer-expiry-ms:60000}") long peerExpiryMs) {
+        this(responseByteCache, transport.getIfAvailable(LoopbackInvalidationTransport::new),
+                batchWindowMs, ackTimeoutMs, maxBatchKeys, heartbeatMs, peerTimeoutMs, peerExpiryMs);
+    }
+
+    public CacheInvalidationBus(ResponseByteCache responseByteCache, InvalidationTransport transport,
+                                long batchWindowMs, long ackTimeoutMs, int maxBatchKeys,
+                                long heartbeatMs, long peerTimeoutMs, long peerExpiryMs) {
+        this.responseByteCache = responseByteCache;
+        this.transport = transport;
+        this.batchWindowMs = batchWindowMs;
+        this.ackTimeoutMs = ackTimeoutMs;
+        this.maxBatchKeys = maxBatchKeys;
+        this.peerTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(peerTimeoutMs);
+        this.peerExpiryNanos = TimeUnit.MILLISECONDS.toNanos(peerExpiryMs);
+        transport.subscribe(this::receive);
+
+        //a non-positive interval turns heartbeats off, e.g. for a single node
+        if (heartbeatMs > 0) {
+            publisher.scheduleWithFixedDelay(this::heartbeat, heartbeatMs, heartbeatMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Invalidates keys on every node and waits until the batch was published.
+     *
+     * @param keys the keys
+     * @throws CacheInvalidationException if the batch was not acknowledged in time
+     */
+    public void invalidate(Collection<String> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        keys.forEach(responseByteCache::evict);
+        await(enqueue(keys, false));
+    }
+
+    /**
+     * Clears the caches of every node and waits until the batch was published.
+     *
+     * @throws CacheInvalidationException if the batch was not acknowledged in time
+     */
+    public void invalidateAll() {
+        responseByteCache.clear();
+        await(enqueue(Set.of(), true));
+    }
+
+    /**
+     * Checks whether cached responses may be served, i.e. no known peer has gone silent.
+     *
+     * @return false while a peer may be publishing invalidations this node does not receive
+     */
+    public boolean isCacheUsable() {
+        for (Peer peer : peers.values()) {
+            if (peer.lapsed) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gets the id of this node on the transport.
+     *
+     * @return the node id
+     */
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Publishes the sequence of the last batch and checks the peers; runs every {@code heartbeat-ms}.
+     */
+    void heartbeat() {
+        long lastSequence;
+        synchronized (lock) {
+            lastSequence = sequence;
+        }
+        try {
+            transport.publish(InvalidationMessage.heartbeat(nodeId, lastSequence));
+        } catch (RuntimeException e) {
+            log.warn("Cache invalidation heartbeat could not be published", e);
+        }
+        checkPeers(System.nanoTime());
+    }
+
+    /**
+     * Marks peers silent for longer than the timeout as lapsed and forgets expired ones.
+     *
+     * @param now the current {@link System#nanoTime()}
+     */
+    void checkPeers(long now) {
+        synchronized (peers) {
+            Iterator<Peer> iterator = peers.values().iterator();
+            while (iterator.hasNext()) {
+                Peer peer = iterator.next();
+                long silence = now - peer.lastHeard;
+                if (silence > peerExpiryNanos) {
+                    //a node that is gone for good no longer writes; its lapse already cleared the cache
+                    iterator.remove();
+                } else if (silence > peerTimeoutNanos && !peer.lapsed) {
+                    log.warn("Cache invalidation peer {} went silent, clearing the response cache", peer.nodeId);
+                    peer.lapsed = true;
+                    responseByteCache.clear();
+                }
+            }
+        }
+    }
+
+    private CompletableFuture<Void> enqueue(Collection<String> keys, boolean clear) {
+        synchronized (lock) {
+            pendingKeys.addAll(keys);
+            pendingClear |= clear;
+            if (pendingBatch == null) {
+                pendingBatch = new CompletableFuture<>();
+                publisher.schedule(this::publish, batchWindowMs, TimeUnit.MILLISECONDS);
+            }
+            return pendingBatch;
+        }
+    }
+
+    private void publish() {
+        Set<String> keys;
+        boolean clear;
+        CompletableFuture<Void> batch;
+        long batchSequence;
+        synchronized (lock) {
+            keys = pendingKeys;
+            clear = pendingClear || pendingKeys.size() > maxBatchKeys;
+            batch = pendingBatch;
+            batchSequence = ++sequence;
+            pendingKeys = new HashSet<>();
+            pendingClear = false;
+            pendingBatch = null;
+        }
+
+        //a failed batch still used its sequence number, so the receivers notice the gap on the next heartbeat
+        try {
+            transport.publish(InvalidationMessage.batch(nodeId, batchSequence, clear ? Set.of() : keys, clear));
+            batch.complete(null);
+        } catch (RuntimeException e) {
+            batch.completeExceptionally(e);
+        }
+    }
+
+    private void receive(InvalidationMessage message) {
+        if (nodeId.equals(message.nodeId())) {
+            return;
+        }
+        synchronized (peers) {
+            Peer peer = peers.computeIfAbsent(message.nodeId(), Peer::new);
+            long last = peer.lastSequence;
+            peer.lastHeard = System.nanoTime();
+            peer.lapsed = false;
+
+            if (message.kind() != InvalidationMessage.Kind.BATCH) {
+                if (message.sequence() > last) {
+                    peer.lastSequence = message.sequence();
+                    responseByteCache.clear();
+                }
+                //a node shutting down will not publish again, so it must not lapse
+                if (message.kind() == InvalidationMessage.Kind.LEAVE) {
+                    peers.remove(message.nodeId());
+                }
+                return;
+            }
+            peer.lastSequence = Math.max(last, message.sequence());
+
+            if (message.clearAll() || message.sequence() != last + 1) {
+                responseByteCache.clear();
+            } else {
+                message.keys().forEach(responseByteCache::evict);
+            }
+        }
+    }
+
+    private void await(CompletableFuture<Void> batch) {
+        try {
+            batch.get(ackTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CacheInvalidationException("Interrupted while invalidating the cluster cache", e);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new CacheInvalidationException(
+                    "The change was stored, but the cluster cache invalidation was not acknowledged", e);
+        }
+    }
+
+    /**
+     * Publishes a leave notice after the pending batches, so that peers forget this node at once
+     * instead of disabling their caches until it expires.
+     */
+    @PreDestroy
+    public void shutdown() {
+        try {
+            publisher.submit(this::leave).get(ackTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException | RejectedExecutionException e) {
+            log.warn("Cache invalidation leave notice could not be published", e);
+        } finally {
+            publisher.shutdown();
+        }
+    }
+
+    private void leave() {
+        long lastSequence;
+        synchronized (lock) {
+            lastSequence = sequence;
+        }
+        transport.publish(InvalidationMessage.leave(nodeId, lastSequence));
+    }
+
+    private static final class Peer {
+
+        private final String nodeId;
+        private long lastSequence;
+        private long lastHeard;
+        private volatile boolean lapsed;
+
+        Peer(String nodeId) {
+            this.nodeId = nodeId;
+        }
+    }
+}
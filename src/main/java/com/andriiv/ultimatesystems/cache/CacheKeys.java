@@ -0,0 +1,84 @@
+package com.andriiv.ultimatesystems.cache;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Builds the cache keys affected by a change of students or teachers.
+ * <p>
+ * Keys are request paths without the leading slash, e.g. {@code students/5/getTeachers}.
+ * The keys reached through the student/teacher links are resolved by
+ * {@link com.andriiv.ultimatesystems.service.RosterCacheKeys}.
+ *
+ * @author Roman_Andriiv
+ */
+public final class CacheKeys {
+
+    private CacheKeys() {
+    }
+
+    /**
+     * Gets the keys rendering many students.
+     *
+     * @param ids the student ids
+     * @return the keys
+     */
+    public static Set<String> students(Collection<Long> ids) {
+        Set<String> keys = new HashSet<>();
+        ids.forEach(id -> addStudent(keys, id));
+        return keys;
+    }
+
+    /**
+     * Gets the keys rendering many teachers.
+     *
+     * @param ids the teacher ids
+     * @return the keys
+     */
+    public static Set<String> teachers(Collection<Long> ids) {
+        Set<String> keys = new HashSet<>();
+        ids.forEach(id -> addTeacher(keys, id));
+        return keys;
+    }
+
+    /**
+     * Gets the {@code students/{id}/getTeachers} keys of many students; these responses embed
+     * the students of each teacher as well.
+     *
+     * @param ids the student ids
+     * @return the keys
+     */
+    public static Set<String> studentTeacherLists(Collection<Long> ids) {
+        Set<String> keys = new HashSet<>();
+        ids.forEach(id -> keys.add("students/" + id + "/getTeachers"));
+        return keys;
+    }
+
+    /**
+     * Gets the {@code teachers/{id}/getStudents} keys of many teachers; these responses embed
+     * the teachers of each student as well.
+     *
+     * @param ids the teacher ids
+     * @return the keys
+     */
+    public static Set<String> teacherStudentLists(Collection<Long> ids) {
+        Set<String> keys = new HashSet<>();
+        ids.forEach(id -> keys.add("teachers/" + id + "/getStudents"));
+        return keys;
+    }
+
+    private static void addStudent(Set<String> keys, Long id) {
+        if (id != null) {
+            keys.add("students/" + id);
+            keys.add("students/" + id + "/getTeachers");
+        }
+    }
+
+    private static void addTeacher(Set<String> keys, Long id) {
+        if (id != null) {
+            keys.add("teachers/" + id);
+            keys.add("teachers/" + id + "/getStudents");
+        }
+    }
+}
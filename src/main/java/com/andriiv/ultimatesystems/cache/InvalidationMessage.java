@@ -0,0 +1,59 @@
+package com.andriiv.ultimatesystems.cache;
+
+import java.util.Set;
+
+/**
+ * A batch of cache invalidations, a heartbeat or a leave notice published by one node.
+ *
+ * @param nodeId   the publishing node
+ * @param sequence the position of the batch in the node's stream, starting at 1 without gaps;
+ *                 for a heartbeat or leave notice, the sequence of the last batch the node published
+ * @param keys     the evicted keys, empty when {@code clearAll} is set
+ * @param clearAll whether the whole cache must be dropped
+ * @param kind     what the message is
+ * @author Roman_Andriiv
+ */
+public record InvalidationMessage(String nodeId, long sequence, Set<String> keys, boolean clearAll, Kind kind) {
+
+    /**
+     * Creates a batch of invalidations.
+     *
+     * @param nodeId   the publishing node
+     * @param sequence the sequence of the batch
+     * @param keys     the evicted keys
+     * @param clearAll whether the whole cache must be dropped
+     * @return the batch
+     */
+    public static InvalidationMessage batch(String nodeId, long sequence, Set<String> keys, boolean clearAll) {
+        return new InvalidationMessage(nodeId, sequence, keys, clearAll, Kind.BATCH);
+    }
+
+    /**
+     * Creates a heartbeat.
+     *
+     * @param nodeId   the publishing node
+     * @param sequence the sequence of the last published batch
+     * @return the heartbeat
+     */
+    public static InvalidationMessage heartbeat(String nodeId, long sequence) {
+        return new InvalidationMessage(nodeId, sequence, Set.of(), false, Kind.HEARTBEAT);
+    }
+
+    /**
+     * Creates the notice a node publishes when it shuts down.
+     *
+     * @param nodeId   the publishing node
+     * @param sequence the sequence of the last published batch
+     * @return the leave notice
+     */
+    public static InvalidationMessage leave(String nodeId, long sequence) {
+        return new InvalidationMessage(nodeId, sequence, Set.of(), false, Kind.LEAVE);
+    }
+
+    /**
+     * The kinds of messages on the transport.
+     */
+    public enum Kind {
+        BATCH, HEARTBEAT, LEAVE
+    }
+}
@@ -0,0 +1,26 @@
+package com.andriiv.ultimatesystems.cache;
+
+import java.util.function.Consumer;
+
+/**
+ * Carries invalidation batches between the nodes of a deployment.
+ *
+ * @author Roman_Andriiv
+ */
+public interface InvalidationTransport {
+
+    /**
+     * Publishes a batch to every subscribed node, the sender included.
+     * Returns only once the batch was delivered; a write counts as acknowledged after that.
+     *
+     * @param message the batch
+     */
+    void publish(InvalidationMessage message);
+
+    /**
+     * Registers a node for incoming batches.
+     *
+     * @param listener the node listener
+     */
+    void subscribe(Consumer<InvalidationMessage> listener);
+}
@@ -0,0 +1,271 @@
+package com.andriiv.ultimatesystems.cache;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Cache of already serialized JSON responses kept in direct (off-heap) buffers.
+ * <p>
+ * Keys are built by {@link CacheKeys}. Every key being rendered or cached has a slot whose version is
+ * bumped on eviction, so a response rendered before a write is never stored after it. Slots without
+ * an entry or a render in flight are dropped, and the least recently served entries are evicted once
+ * {@code response.cache.max-bytes} is exceeded. Writes evict through {@link CacheInvalidationBus} so
+ * that every node sees them.
+ *
+ * @author Roman_Andriiv
+ */
+@Component
+public class ResponseByteCache {
+
+    private static final int GZIP_MIN_SIZE = 1024;
+    private static final double SHRINK_RATIO = 0.9;
+
+    private final Map<String, Slot> slots = new ConcurrentHashMap<>();
+    private final AtomicLong usedBytes = new AtomicLong();
+    private final AtomicLong clock = new AtomicLong();
+    private final long maxBytes;
+
+    public ResponseByteCache(@Value("${response.cache.max-bytes:67108864}") long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Registers a render of the key; every call must be followed by {@link #finishRender}.
+     *
+     * @param key the key
+     * @return the version to pass to {@link #finishRender}
+     */
+    public long beginRender(String key) {
+        long[] version = new long[1];
+        slots.compute(key, (k, slot) -> {
+            Slot current = slot != null ? slot : new Slot();
+            current.readers++;
+            version[0] = current.version;
+            return current;
+        });
+        return version[0];
+    }
+
+    /**
+     * Ends a render and stores its response if the key was not evicted since {@link #beginRender}.
+     *
+     * @param key     the key
+     * @param version the version returned by {@link #beginRender}
+     * @param body    the serialized response, or null if it must not be cached
+     * @return true if the response was stored
+     */
+    public boolean finishRender(String key, long version, byte[] body) {
+        Entry entry = body != null ? encode(body) : null;
+        boolean[] stored = new boolean[1];
+        slots.computeIfPresent(key, (k, slot) -> {
+            slot.readers--;
+            if (entry != null && slot.version == version && entry.size() <= maxBytes) {
+                release(slot.entry);
+                entry.lastAccess = clock.incrementAndGet();
+                slot.entry = entry;
+                usedBytes.addAndGet(entry.size());
+                stored[0] = true;
+            }
+            return slot.isUnused() ? null : slot;
+        });
+
+        if (stored[0] && usedBytes.get() > maxBytes) {
+            shrink();
+        }
+        return stored[0];
+    }
+
+    /**
+     * Writes a cached response straight to the servlet output.
+     *
+     * @param key      the key
+     * @param gzip     whether the client accepts gzip
+     * @param response the response
+     * @return false if the key is not cached
+     * @throws IOException if writing fails
+     */
+    public boolean writeTo(String key, boolean gzip, HttpServletResponse response) throws IOException {
+        Slot slot = slots.get(key);
+        Entry entry = slot != null ? slot.entry : null;
+        if (entry == null) {
+            return false;
+        }
+        entry.lastAccess = clock.incrementAndGet();
+
+        ByteBuffer body = entry.plain;
+        if (gzip && entry.gzipped != null) {
+            body = entry.gzipped;
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        body = body.duplicate();
+
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setContentLength(body.remaining());
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+
+        WritableByteChannel channel = Channels.newChannel(response.getOutputStream());
+        while (body.hasRemaining()) {
+            channel.write(body);
+        }
+        return true;
+    }
+
+    /**
+     * Evicts a single key.
+     *
+     * @param key the key
+     */
+    public void evict(String key) {
+        //a key that is neither cached nor being rendered has nothing to invalidate
+        slots.computeIfPresent(key, (k, slot) -> {
+            slot.version++;
+            release(slot.entry);
+            slot.entry = null;
+            return slot.isUnused() ? null : slot;
+        });
+    }
+
+    /**
+     * Evicts everything.
+     */
+    public void clear() {
+        for (String key : slots.keySet()) {
+            evict(key);
+        }
+    }
+
+    /**
+     * Checks whether a key is cached.
+     *
+     * @param key the key
+     * @return true if a response is cached for the key
+     */
+    boolean isCached(String key) {
+        Slot slot = slots.get(key);
+        return slot != null && slot.entry != null;
+    }
+
+    /**
+     * Gets the number of keys that are cached or being rendered.
+     *
+     * @return the number of slots
+     */
+    int slotCount() {
+        return slots.size();
+    }
+
+    /**
+     * Gets the size of the cached responses.
+     *
+     * @return the used bytes
+     */
+    long usedBytes() {
+        return usedBytes.get();
+    }
+
+    //drops the least recently served entries until the cache is back under the shrink ratio
+    private synchronized void shrink() {
+        if (usedBytes.get() <= maxBytes) {
+            return;
+        }
+        List<Map.Entry<String, Entry>> cached = new ArrayList<>();
+        slots.forEach((key, slot) -> {
+            Entry entry = slot.entry;
+            if (entry != null) {
+                cached.add(Map.entry(key, entry));
+            }
+        });
+        cached.sort(Comparator.comparingLong(cachedEntry -> cachedEntry.getValue().lastAccess));
+
+        long target = (long) (maxBytes * SHRINK_RATIO);
+        for (Map.Entry<String, Entry> cachedEntry : cached) {
+            if (usedBytes.get() <= target) {
+                break;
+            }
+            drop(cachedEntry.getKey(), cachedEntry.getValue());
+        }
+    }
+
+    //removes an entry without bumping the version, the response itself is still valid
+    private void drop(String key, Entry expected) {
+        slots.computeIfPresent(key, (k, slot) -> {
+            if (slot.entry == expected) {
+                release(expected);
+                slot.entry = null;
+            }
+            return slot.isUnused() ? null : slot;
+        });
+    }
+
+    private void release(Entry entry) {
+        if (entry != null) {
+            usedBytes.addAndGet(-entry.size());
+        }
+    }
+
+    private static Entry encode(byte[] body) {
+        byte[] gzipped = body.length >= GZIP_MIN_SIZE ? gzip(body) : null;
+        return new Entry(toDirect(body), gzipped != null && gzipped.length < body.length ? toDirect(gzipped) : null);
+    }
+
+    private static ByteBuffer toDirect(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+        buffer.put(bytes).flip();
+        return buffer.asReadOnlyBuffer();
+    }
+
+    private static byte[] gzip(byte[] bytes) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 2);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(bytes);
+        } catch (IOException e) {
+            return null;
+        }
+        return out.toByteArray();
+    }
+
+    //mutated only inside the compute functions of the slot map
+    private static final class Slot {
+
+        private long version;
+        private int readers;
+        private volatile Entry entry;
+
+        boolean isUnused() {
+            return entry == null && readers == 0;
+        }
+    }
+
+    private static final class Entry {
+
+        private final ByteBuffer plain;
+        private final ByteBuffer gzipped;
+        private volatile long lastAccess;
+
+        Entry(ByteBuffer plain, ByteBuffer gzipped) {
+            this.plain = plain;
+            this.gzipped = gzipped;
+        }
+
+        long size() {
+            return plain.capacity() + (gzipped != null ? gzipped.capacity() : 0);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.andriiv.ultimatesystems.cache;
+
+import com.andriiv.ultimatesystems.snapshot.RosterSnapshotStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.regex.Pattern;
+
+/**
+ * Serves the hot read endpoints from {@link ResponseByteCache} and fills it on a miss.
+ *
+ * @author Roman_Andriiv
+ */
+@Component
+public class ResponseCacheFilter extends OncePerRequestFilter {
+
+    private static final Pattern CACHEABLE =
+            Pattern.compile("/(students/\\d+(/getTeachers)?|teachers/\\d+(/getStudents)?)");
+
+    private final ResponseByteCache responseByteCache;
+    private final CacheInvalidationBus cacheInvalidationBus;
+    private final boolean enabled;
+
+    public ResponseCacheFilter(ResponseByteCache responseByteCache, CacheInvalidationBus cacheInvalidationBus,
+                               @Value("${response.cache.enabled:true}") boolean enabled) {
+        this.responseByteCache = responseByteCache;
+        this.cacheInvalidationBus = cacheInvalidationBus;
+        this.enabled = enabled;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled || !"GET".equals(request.getMethod()) || !CACHEABLE.matcher(path(request)).matches();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+
+        //while a peer is silent its invalidations may be lost, so neither serve nor store responses
+        if (!cacheInvalidationBus.isCacheUsable()) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        String key = path(request).substring(1);
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+
+        if (responseByteCache.writeTo(key, gzip, response)) {
+            return;
+        }
+
+        long version = responseByteCache.beginRender(key);
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        byte[] body = null;
+        try {
+            chain.doFilter(request, wrapper);
+
+            //responses served from the roster snapshot are stale by definition
+            if (wrapper.getStatus() == HttpServletResponse.SC_OK && !wrapper.containsHeader(RosterSnapshotStore.AGE_HEADER)) {
+                body = wrapper.getContentAsByteArray();
+            }
+        } finally {
+            responseByteCache.finishRender(key, version, body);
+        }
+        wrapper.copyBodyToResponse();
+    }
+
+    private static String path(HttpServletRequest request) {
+        return request.getRequestURI().substring(request.getContextPath().length());
+    }
+}
@@ -1,14 +1,27 @@
 package com.andriiv.ultimatesystems.controller;
 
+import com.andriiv.ultimatesystems.cache.CacheInvalidationBus;
+import com.andriiv.ultimatesystems.dto.BatchResponse;
+import com.andriiv.ultimatesystems.dto.BulkDeleteRequest;
+import com.andriiv.ultimatesystems.dto.BulkDeleteResponse;
+import com.andriiv.ultimatesystems.dto.StudentSearchCriteria;
+import com.andriiv.ultimatesystems.email.EmailUniquenessGuard;
 import com.andriiv.ultimatesystems.entity.Student;
 import com.andriiv.ultimatesystems.entity.Teacher;
+import com.andriiv.ultimatesystems.exception.DuplicateEmailException;
 import com.andriiv.ultimatesystems.exception.ResourceNotFoundException;
 import com.andriiv.ultimatesystems.repository.StudentRepository;
 import com.andriiv.ultimatesystems.repository.TeacherRepository;
+import com.andriiv.ultimatesystems.service.BatchLookupService;
+import com.andriiv.ultimatesystems.service.BulkDeleteService;
+import com.andriiv.ultimatesystems.service.RosterCacheKeys;
+import com.andriiv.ultimatesystems.snapshot.RosterSnapshotStore;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -16,6 +29,9 @@ import org.springframework.web.bind.annotation.*;
 
 import javax.validation.Valid;
 import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
 
 /**
  * The type Student controller.
@@ -28,11 +44,26 @@ public class StudentController {
 
     private final StudentRepository studentRepository;
     private final TeacherRepository teacherRepository;
+    private final BatchLookupService batchLookupService;
+    private final CacheInvalidationBus cacheInvalidationBus;
+    private final BulkDeleteService bulkDeleteService;
+    private final EmailUniquenessGuard emailUniquenessGuard;
+    private final RosterSnapshotStore rosterSnapshotStore;
+    private final RosterCacheKeys rosterCacheKeys;
 
     @Autowired
-    public StudentController(StudentRepository studentRepository, TeacherRepository teacherRepository) {
+    public StudentController(StudentRepository studentRepository, TeacherRepository teacherRepository,
+                             BatchLookupService batchLookupService, CacheInvalidationBus cacheInvalidationBus,
+                             BulkDeleteService bulkDeleteService, EmailUniquenessGuard emailUniquenessGuard,
+                             RosterSnapshotStore rosterSnapshotStore, RosterCacheKeys rosterCacheKeys) {
         this.studentRepository = studentRepository;
         this.teacherRepository = teacherRepository;
+        this.batchLookupService = batchLookupService;
+        this.cacheInvalidationBus = cacheInvalidationBus;
+        this.bulkDeleteService = bulkDeleteService;
+        this.emailUniquenessGuard = emailUniquenessGuard;
+        this.rosterSnapshotStore = rosterSnapshotStore;
+        this.rosterCacheKeys = rosterCacheKeys;
     }
 
 
@@ -42,14 +73,15 @@ public class StudentController {
      * @return the all students
      */
     @GetMapping("/all")
-    public ResponseEntity<?> getAllStudents() {
-
-        List<Student> students = studentRepository.findAll();
-
-        if (students.isEmpty()) {
-            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
-        }
-        return new ResponseEntity<>(students, HttpStatus.OK);
+    public ResponseEntity<List<Student>> getAllStudents() {
+
+        return rosterSnapshotStore.read(() -> {
+            List<Student> students = studentRepository.findAll();
+            if (students.isEmpty()) {
+                return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+            }
+            return new ResponseEntity<>(students, HttpStatus.OK);
+        }, snapshot -> Optional.of(snapshot.allStudents()).filter(students -> !students.isEmpty()));
     }
 
     /**
@@ -123,6 +155,32 @@ public class StudentController {
         return new ResponseEntity<>(students, HttpStatus.OK);
     }
 
+    /**
+     * Search students by any combination of criteria.
+     *
+     * @param criteria     the criteria, passed as request parameters
+     * @param pageNumber   the page number
+     * @param pageSize     the page size
+     * @param sortProperty the sort property
+     * @param withTotal    whether to count all matches and return a page with totals
+     * @return the slice of students
+     */
+    @GetMapping("/search")
+    public Slice<Student> searchStudents(StudentSearchCriteria criteria,
+                                         @RequestParam(value = "page", defaultValue = "0") Integer pageNumber,
+                                         @RequestParam(value = "size", defaultValue = "20") Integer pageSize,
+                                         @RequestParam(value = "sort", defaultValue = "id") String sortProperty,
+                                         @RequestParam(value = "withTotal", defaultValue = "false") boolean withTotal) {
+        Pageable pageable = PageRequest.of(pageNumber, pageSize, Sort.Direction.ASC, sortProperty);
+
+        Slice<Student> students = studentRepository.search(criteria, pageable, withTotal);
+        //initializes the collections of the whole slice with one query instead of one per row while rendering
+        if (students.hasContent()) {
+            studentRepository.fetchTeachers(students.getContent());
+        }
+        return students;
+    }
+
     /**
      * Gets one student.
      *
@@ -133,10 +191,11 @@ public class StudentController {
     @GetMapping("/{id}")
     public ResponseEntity<Student> getOneStudent(@PathVariable(value = "id") Long id) throws ResourceNotFoundException {
 
-        Student student = studentRepository.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException("Student not found for id :: " + id));
-
-        return new ResponseEntity<>(student, HttpStatus.OK);
+        return rosterSnapshotStore.read(() -> {
+            Student student = studentRepository.findById(id)
+                    .orElseThrow(() -> new ResourceNotFoundException("Student not found for id :: " + id));
+            return new ResponseEntity<>(student, HttpStatus.OK);
+        }, snapshot -> snapshot.findStudent(id));
     }
 
     /**
@@ -149,11 +208,30 @@ public class StudentController {
     @GetMapping("/{id}/getTeachers")
     public ResponseEntity<List<Teacher>> getStudentTeachers(@PathVariable(value = "id") Long id) throws ResourceNotFoundException {
 
-        Student student = studentRepository.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException("Student not found for id :: " + id));
-        List<Teacher> studentTeachers = student.getTeachers();
+        return rosterSnapshotStore.read(() -> {
+            Student student = studentRepository.findById(id)
+                    .orElseThrow(() -> new ResourceNotFoundException("Student not found for id :: " + id));
+            List<Teacher> studentTeachers = student.getTeachers();
 
-        return new ResponseEntity<>(studentTeachers, HttpStatus.OK);
+            return new ResponseEntity<>(studentTeachers, HttpStatus.OK);
+        }, snapshot -> snapshot.findStudent(id).map(Student::getTeachers));
+    }
+
+    /**
+     * Gets many students with their teachers in one call.
+     *
+     * @param ids the student ids
+     * @return the found students in request order and the missing ids
+     */
+    @GetMapping("/batch")
+    public ResponseEntity<?> getStudentsBatch(@RequestParam(value = "ids") List<Long> ids) {
+
+        if (ids.isEmpty() || ids.contains(null)) {
+            return new ResponseEntity<>("The ids should not be empty", HttpStatus.BAD_REQUEST);
+        }
+        BatchResponse<Student> students = batchLookupService.findStudents(ids);
+
+        return new ResponseEntity<>(students, HttpStatus.OK);
     }
 
 
@@ -162,11 +240,23 @@ public class StudentController {
      *
      * @param student the student
      * @return the response entity
+     * @throws DuplicateEmailException if the email is already in use
      */
     @PostMapping("/save")
-    public ResponseEntity<?> saveStudent(@Valid @RequestBody Student student) {
+    public ResponseEntity<?> saveStudent(@Valid @RequestBody Student student) throws DuplicateEmailException {
 
-        studentRepository.save(student);
+        emailUniquenessGuard.checkStudentEmail(student.getEmail(), student.getId());
+
+        try {
+            studentRepository.save(student);
+        } catch (DataIntegrityViolationException e) {
+            throw emailUniquenessGuard.duplicateEmail(e);
+        }
+        emailUniquenessGuard.studentSaved(student.getEmail());
+        emailUniquenessGuard.teachersSaved(student.getTeachers());
+        Set<String> staleKeys = rosterCacheKeys.students(List.of(student.getId()));
+        staleKeys.addAll(rosterCacheKeys.teachers(ids(student.getTeachers())));
+        cacheInvalidationBus.invalidate(staleKeys);
         return new ResponseEntity<>("Student was saved to DB", HttpStatus.OK);
     }
 
@@ -178,14 +268,24 @@ public class StudentController {
      * @param studentDetails the student details
      * @return the response entity
      * @throws ResourceNotFoundException the resource not found exception
+     * @throws DuplicateEmailException   if the new email is already in use
      */
     @PutMapping("/{id}")
     public ResponseEntity<?> updateStudent(@PathVariable(value = "id") Long id,
-                                           @Valid @RequestBody Student studentDetails) throws ResourceNotFoundException {
+                                           @Valid @RequestBody Student studentDetails)
+            throws ResourceNotFoundException, DuplicateEmailException {
 
         Student student = studentRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Student not found for this ID :: " + id));
 
+        boolean emailChanged = !Objects.equals(student.getEmail(), studentDetails.getEmail());
+        if (emailChanged) {
+            emailUniquenessGuard.checkStudentEmail(studentDetails.getEmail(), id);
+        }
+
+        //the previous teachers have to be evicted as well
+        Set<String> staleKeys = rosterCacheKeys.students(List.of(id));
+
         student.setFirstName(studentDetails.getFirstName());
         student.setLastName(studentDetails.getLastName());
         student.setAge(studentDetails.getAge());
@@ -193,7 +293,20 @@ public class StudentController {
         student.setSpecialization(studentDetails.getSpecialization());
         student.setTeachers(studentDetails.getTeachers());
 
-        studentRepository.save(student);
+        try {
+            studentRepository.save(student);
+        } catch (DataIntegrityViolationException e) {
+            throw emailUniquenessGuard.duplicateEmail(e);
+        }
+        emailUniquenessGuard.teachersSaved(student.getTeachers());
+        if (emailChanged) {
+            emailUniquenessGuard.studentSaved(student.getEmail());
+            emailUniquenessGuard.studentsRemoved(1);
+        }
+        staleKeys.addAll(rosterCacheKeys.students(List.of(id)));
+        //nested teachers are cascade-merged, so their data may have changed as well
+        staleKeys.addAll(rosterCacheKeys.teachers(ids(studentDetails.getTeachers())));
+        cacheInvalidationBus.invalidate(staleKeys);
 
         return new ResponseEntity<>("Student was updated", HttpStatus.OK);
     }
@@ -211,10 +324,39 @@ public class StudentController {
         Student student = studentRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Student not found for this ID :: " + id));
 
+        int linkedTeachers = student.getTeachers() != null ? student.getTeachers().size() : 0;
+
         studentRepository.delete(student);
+        emailUniquenessGuard.studentsRemoved(1);
+        emailUniquenessGuard.teachersRemoved(linkedTeachers);
+        //the delete cascades through the whole student/teacher graph
+        cacheInvalidationBus.invalidateAll();
         return new ResponseEntity<>("Student was deleted from DB", HttpStatus.OK);
     }
 
+    /**
+     * Delete many students with set-based statements, without cascading to their teachers.
+     *
+     * @param request the ids or the filter of the students to delete
+     * @return the number of deleted students and links
+     */
+    @PostMapping("/bulk-delete")
+    public ResponseEntity<?> bulkDeleteStudents(@RequestBody BulkDeleteRequest<StudentSearchCriteria> request) {
+
+        boolean byIds = request.getIds() != null && !request.getIds().isEmpty();
+        boolean byFilter = request.getFilter() != null && !request.getFilter().hasNoFilters();
+
+        if (byIds == byFilter || (byIds && request.getIds().contains(null))) {
+            return new ResponseEntity<>("Either ids or a non-empty filter should be given", HttpStatus.BAD_REQUEST);
+        }
+        BulkDeleteResponse response = byIds
+                ? bulkDeleteService.deleteStudents(request.getIds())
+                : bulkDeleteService.deleteStudents(request.getFilter());
+        emailUniquenessGuard.studentsRemoved(response.getDeleted());
+
+        return new ResponseEntity<>(response, HttpStatus.OK);
+    }
+
     /**
      * Add teacher to the list of teachers of a specific student.
      *
@@ -239,6 +381,8 @@ public class StudentController {
         teacher.getStudents().add(student);
         teacherRepository.save(teacher);
 
+        cacheInvalidationBus.invalidate(rosterCacheKeys.links(List.of(studentId), List.of(teacherId)));
+
         return new ResponseEntity<>("The teachers has been added to teacher list", HttpStatus.OK);
     }
 
@@ -265,12 +409,20 @@ public class StudentController {
             student.getTeachers().remove(teacher);
             studentRepository.save(student);
 
+            cacheInvalidationBus.invalidate(rosterCacheKeys.links(List.of(studentId), List.of(teacherId)));
+
             return new ResponseEntity<>("The teacher has been removed from the teacher list", HttpStatus.OK);
 
         } else
             return new ResponseEntity<>("Something wrong", HttpStatus.INTERNAL_SERVER_ERROR);
     }
 
+    private static List<Long> ids(List<Teacher> teachers) {
+        return teachers == null ? List.of() : teachers.stream()
+                .map(Teacher::getId)
+                .filter(Objects::nonNull)
+                .toList();
+    }
 }
 
 
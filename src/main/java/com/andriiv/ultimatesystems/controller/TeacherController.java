@@ -1,14 +1,27 @@
 package com.andriiv.ultimatesystems.controller;
 
+import com.andriiv.ultimatesystems.cache.CacheInvalidationBus;
+import com.andriiv.ultimatesystems.dto.BatchResponse;
+import com.andriiv.ultimatesystems.dto.BulkDeleteRequest;
+import com.andriiv.ultimatesystems.dto.BulkDeleteResponse;
+import com.andriiv.ultimatesystems.dto.TeacherSearchCriteria;
+import com.andriiv.ultimatesystems.email.EmailUniquenessGuard;
 import com.andriiv.ultimatesystems.entity.Student;
 import com.andriiv.ultimatesystems.entity.Teacher;
+import com.andriiv.ultimatesystems.exception.DuplicateEmailException;
 import com.andriiv.ultimatesystems.exception.ResourceNotFoundException;
 import com.andriiv.ultimatesystems.repository.StudentRepository;
 import com.andriiv.ultimatesystems.repository.TeacherRepository;
+import com.andriiv.ultimatesystems.service.BatchLookupService;
+import com.andriiv.ultimatesystems.service.BulkDeleteService;
+import com.andriiv.ultimatesystems.service.RosterCacheKeys;
+import com.andriiv.ultimatesystems.snapshot.RosterSnapshotStore;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -16,6 +29,9 @@ import org.springframework.web.bind.annotation.*;
 
 import javax.validation.Valid;
 import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
 
 /**
  * @author Roman_Andriiv
@@ -26,11 +42,26 @@ public class TeacherController {
 
     private final TeacherRepository teacherRepository;
     private final StudentRepository studentRepository;
+    private final BatchLookupService batchLookupService;
+    private final CacheInvalidationBus cacheInvalidationBus;
+    private final BulkDeleteService bulkDeleteService;
+    private final EmailUniquenessGuard emailUniquenessGuard;
+    private final RosterSnapshotStore rosterSnapshotStore;
+    private final RosterCacheKeys rosterCacheKeys;
 
     @Autowired
-    public TeacherController(TeacherRepository teacherRepository, StudentRepository studentRepository) {
+    public TeacherController(TeacherRepository teacherRepository, StudentRepository studentRepository,
+                             BatchLookupService batchLookupService, CacheInvalidationBus cacheInvalidationBus,
+                             BulkDeleteService bulkDeleteService, EmailUniquenessGuard emailUniquenessGuard,
+                             RosterSnapshotStore rosterSnapshotStore, RosterCacheKeys rosterCacheKeys) {
         this.teacherRepository = teacherRepository;
         this.studentRepository = studentRepository;
+        this.batchLookupService = batchLookupService;
+        this.cacheInvalidationBus = cacheInvalidationBus;
+        this.bulkDeleteService = bulkDeleteService;
+        this.emailUniquenessGuard = emailUniquenessGuard;
+        this.rosterSnapshotStore = rosterSnapshotStore;
+        this.rosterCacheKeys = rosterCacheKeys;
     }
 
 
@@ -40,14 +71,15 @@ public class TeacherController {
      * @return the all teachers
      */
     @GetMapping("/all")
-    public ResponseEntity<?> getAll() {
-
-        List<Teacher> teachers = teacherRepository.findAll();
-
-        if (teachers.isEmpty()){
-            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
-        }
-        return new ResponseEntity<>(teachers, HttpStatus.OK);
+    public ResponseEntity<List<Teacher>> getAll() {
+
+        return rosterSnapshotStore.read(() -> {
+            List<Teacher> teachers = teacherRepository.findAll();
+            if (teachers.isEmpty()){
+                return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+            }
+            return new ResponseEntity<>(teachers, HttpStatus.OK);
+        }, snapshot -> Optional.of(snapshot.allTeachers()).filter(teachers -> !teachers.isEmpty()));
     }
 
     /**
@@ -96,10 +128,28 @@ public class TeacherController {
     @GetMapping("/{id}")
     public ResponseEntity<Teacher> getOne(@PathVariable(value = "id") Long id) throws ResourceNotFoundException {
 
-        Teacher teacher = teacherRepository.findById(id)
-                .orElseThrow(()-> new ResourceNotFoundException("Teacher not found for id :: " + id));
+        return rosterSnapshotStore.read(() -> {
+            Teacher teacher = teacherRepository.findById(id)
+                    .orElseThrow(()-> new ResourceNotFoundException("Teacher not found for id :: " + id));
+            return new ResponseEntity<>(teacher, HttpStatus.OK);
+        }, snapshot -> snapshot.findTeacher(id));
+    }
+
+    /**
+     * Gets many teachers with their students in one call.
+     *
+     * @param ids the teacher ids
+     * @return the found teachers in request order and the missing ids
+     */
+    @PostMapping("/batch-get")
+    public ResponseEntity<?> getTeachersBatch(@RequestBody List<Long> ids) {
+
+        if (ids == null || ids.isEmpty() || ids.contains(null)) {
+            return new ResponseEntity<>("The ids should not be empty", HttpStatus.BAD_REQUEST);
+        }
+        BatchResponse<Teacher> teachers = batchLookupService.findTeachers(ids);
 
-        return new ResponseEntity<>(teacher, HttpStatus.OK);
+        return new ResponseEntity<>(teachers, HttpStatus.OK);
     }
 
     /**
@@ -107,11 +157,23 @@ public class TeacherController {
      *
      * @param teacher the teacher
      * @return the response entity
+     * @throws DuplicateEmailException if the email is already in use
      */
     @PostMapping("/save")
-    public ResponseEntity<?> save(@Valid @RequestBody Teacher teacher){
+    public ResponseEntity<?> save(@Valid @RequestBody Teacher teacher) throws DuplicateEmailException {
 
-        teacherRepository.save(teacher);
+        emailUniquenessGuard.checkTeacherEmail(teacher.getEmail(), teacher.getId());
+
+        try {
+            teacherRepository.save(teacher);
+        } catch (DataIntegrityViolationException e) {
+            throw emailUniquenessGuard.duplicateEmail(e);
+        }
+        emailUniquenessGuard.teacherSaved(teacher.getEmail());
+        emailUniquenessGuard.studentsSaved(teacher.getStudents());
+        Set<String> staleKeys = rosterCacheKeys.teachers(List.of(teacher.getId()));
+        staleKeys.addAll(rosterCacheKeys.students(ids(teacher.getStudents())));
+        cacheInvalidationBus.invalidate(staleKeys);
         return new ResponseEntity<>("Teacher was saved successfully",HttpStatus.OK);
     }
 
@@ -122,14 +184,24 @@ public class TeacherController {
      * @param teacherDetails the teacher details
      * @return the response entity
      * @throws ResourceNotFoundException the resource not found exception
+     * @throws DuplicateEmailException   if the new email is already in use
      */
     @PutMapping("/{id}")
     public ResponseEntity<?> update(@PathVariable(value = "id") Long id,
-                                           @Valid @RequestBody Teacher teacherDetails) throws ResourceNotFoundException {
+                                           @Valid @RequestBody Teacher teacherDetails)
+            throws ResourceNotFoundException, DuplicateEmailException {
 
         Teacher teacher = teacherRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Teacher not found for this ID :: " + id));
 
+        boolean emailChanged = !Objects.equals(teacher.getEmail(), teacherDetails.getEmail());
+        if (emailChanged) {
+            emailUniquenessGuard.checkTeacherEmail(teacherDetails.getEmail(), id);
+        }
+
+        //the previous students have to be evicted as well
+        Set<String> staleKeys = rosterCacheKeys.teachers(List.of(id));
+
         teacher.setFirstName(teacherDetails.getFirstName());
         teacher.setLastName(teacherDetails.getLastName());
         teacher.setAge(teacherDetails.getAge());
@@ -137,7 +209,20 @@ public class TeacherController {
         teacher.setSubject(teacherDetails.getSubject());
         teacher.setStudents(teacherDetails.getStudents());
 
-        teacherRepository.save(teacher);
+        try {
+            teacherRepository.save(teacher);
+        } catch (DataIntegrityViolationException e) {
+            throw emailUniquenessGuard.duplicateEmail(e);
+        }
+        emailUniquenessGuard.studentsSaved(teacher.getStudents());
+        if (emailChanged) {
+            emailUniquenessGuard.teacherSaved(teacher.getEmail());
+            emailUniquenessGuard.teachersRemoved(1);
+        }
+        staleKeys.addAll(rosterCacheKeys.teachers(List.of(id)));
+        //nested students are cascade-merged, so their data may have changed as well
+        staleKeys.addAll(rosterCacheKeys.students(ids(teacherDetails.getStudents())));
+        cacheInvalidationBus.invalidate(staleKeys);
 
         return new ResponseEntity<>("Teacher was updated successfully", HttpStatus.OK);
     }
@@ -155,11 +240,40 @@ public class TeacherController {
         Teacher teacher = teacherRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Teacher not found for this ID :: " + id));
 
+        int linkedStudents = teacher.getStudents() != null ? teacher.getStudents().size() : 0;
+
         teacherRepository.delete(teacher);
+        emailUniquenessGuard.teachersRemoved(1);
+        emailUniquenessGuard.studentsRemoved(linkedStudents);
+        //the delete cascades through the whole student/teacher graph
+        cacheInvalidationBus.invalidateAll();
         return new ResponseEntity<>("Teacher was deleted successfully", HttpStatus.OK);
 
     }
 
+    /**
+     * Delete many teachers with set-based statements, without cascading to their students.
+     *
+     * @param request the ids or the filter of the teachers to delete
+     * @return the number of deleted teachers and links
+     */
+    @PostMapping("/bulk-delete")
+    public ResponseEntity<?> bulkDeleteTeachers(@RequestBody BulkDeleteRequest<TeacherSearchCriteria> request) {
+
+        boolean byIds = request.getIds() != null && !request.getIds().isEmpty();
+        boolean byFilter = request.getFilter() != null && !request.getFilter().hasNoFilters();
+
+        if (byIds == byFilter || (byIds && request.getIds().contains(null))) {
+            return new ResponseEntity<>("Either ids or a non-empty filter should be given", HttpStatus.BAD_REQUEST);
+        }
+        BulkDeleteResponse response = byIds
+                ? bulkDeleteService.deleteTeachers(request.getIds())
+                : bulkDeleteService.deleteTeachers(request.getFilter());
+        emailUniquenessGuard.teachersRemoved(response.getDeleted());
+
+        return new ResponseEntity<>(response, HttpStatus.OK);
+    }
+
     /**
      * Add a student to the list of students of a specific teacher .
      *
@@ -185,6 +299,8 @@ public class TeacherController {
         student.getTeachers().add(teacher);
         studentRepository.save(student);
 
+        cacheInvalidationBus.invalidate(rosterCacheKeys.links(List.of(studentId), List.of(teacherId)));
+
         return new ResponseEntity<>("The student has been added to the list of students", HttpStatus.OK);
     }
 
@@ -212,6 +328,8 @@ public class TeacherController {
             teacher.getStudents().remove(student);
             teacherRepository.save(teacher);
 
+            cacheInvalidationBus.invalidate(rosterCacheKeys.links(List.of(studentId), List.of(teacherId)));
+
             return new ResponseEntity<>("The student has been removed from the student list", HttpStatus.OK);
         }else
             return new ResponseEntity<>("Something wrong", HttpStatus.INTERNAL_SERVER_ERROR);
@@ -251,6 +369,32 @@ public class TeacherController {
         return new ResponseEntity<>(teachers, HttpStatus.OK);
     }
 
+    /**
+     * Search teachers by any combination of criteria.
+     *
+     * @param criteria     the criteria, passed as request parameters
+     * @param pageNumber   the page number
+     * @param pageSize     the page size
+     * @param sortProperty the sort property
+     * @param withTotal    whether to count all matches and return a page with totals
+     * @return the slice of teachers
+     */
+    @GetMapping("/search")
+    public Slice<Teacher> searchTeachers(TeacherSearchCriteria criteria,
+                                         @RequestParam(value = "page", defaultValue = "0") Integer pageNumber,
+                                         @RequestParam(value = "size", defaultValue = "20") Integer pageSize,
+                                         @RequestParam(value = "sort", defaultValue = "id") String sortProperty,
+                                         @RequestParam(value = "withTotal", defaultValue = "false") boolean withTotal) {
+        Pageable pageable = PageRequest.of(pageNumber, pageSize, Sort.Direction.ASC, sortProperty);
+
+        Slice<Teacher> teachers = teacherRepository.search(criteria, pageable, withTotal);
+        //initializes the collections of the whole slice with one query instead of one per row while rendering
+        if (teachers.hasContent()) {
+            teacherRepository.fetchStudents(teachers.getContent());
+        }
+        return teachers;
+    }
+
     /**
      * Gets teacher students.
      *
@@ -261,11 +405,20 @@ public class TeacherController {
     @GetMapping("/{id}/getStudents")
     public ResponseEntity<List<Student>> getTeacherStudents(@PathVariable(value = "id") Long id) throws ResourceNotFoundException {
 
-        Teacher teacher = teacherRepository.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException("Student not found for id :: " + id));
-        List<Student> teacherStudents = teacher.getStudents();
+        return rosterSnapshotStore.read(() -> {
+            Teacher teacher = teacherRepository.findById(id)
+                    .orElseThrow(() -> new ResourceNotFoundException("Student not found for id :: " + id));
+            List<Student> teacherStudents = teacher.getStudents();
+
+            return new ResponseEntity<>(teacherStudents, HttpStatus.OK);
+        }, snapshot -> snapshot.findTeacher(id).map(Teacher::getStudents));
+    }
 
-        return new ResponseEntity<>(teacherStudents, HttpStatus.OK);
+    private static List<Long> ids(List<Student> students) {
+        return students == null ? List.of() : students.stream()
+                .map(Student::getId)
+                .filter(Objects::nonNull)
+                .toList();
     }
 }
 
@@ -0,0 +1,20 @@
+package com.andriiv.ultimatesystems.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Result of a multi-get lookup: the found entities in request order and the ids that do not exist.
+ *
+ * @param <T> the entity type
+ * @author Roman_Andriiv
+ */
+@Getter
+@AllArgsConstructor
+public class BatchResponse<T> {
+
+    private List<T> found;
+    private List<Long> missingIds;
+}
@@ -0,0 +1,18 @@
+package com.andriiv.ultimatesystems.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Selects the rows of a bulk delete either by ids or by search criteria.
+ *
+ * @param <C> the search criteria type
+ * @author Roman_Andriiv
+ */
+@Data
+public class BulkDeleteRequest<C> {
+
+    private List<Long> ids;
+    private C filter;
+}
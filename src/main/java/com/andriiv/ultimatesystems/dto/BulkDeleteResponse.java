@@ -0,0 +1,17 @@
+package com.andriiv.ultimatesystems.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Affected row counts of a bulk delete.
+ *
+ * @author Roman_Andriiv
+ */
+@Getter
+@AllArgsConstructor
+public class BulkDeleteResponse {
+
+    private int deleted;
+    private int deletedLinks;
+}
@@ -0,0 +1,29 @@
+package com.andriiv.ultimatesystems.dto;
+
+import lombok.Data;
+
+/**
+ * Optional filters of the teacher search; only the filled ones are applied.
+ *
+ * @author Roman_Andriiv
+ */
+@Data
+public class TeacherSearchCriteria {
+
+    private String firstName;
+    private String lastNamePrefix;
+    private Integer minAge;
+    private Integer maxAge;
+    private String subject;
+    private Long studentId;
+
+    /**
+     * Checks whether no filter is set, i.e. the criteria would match every row.
+     *
+     * @return true if no filter is set
+     */
+    public boolean hasNoFilters() {
+        return firstName == null && lastNamePrefix == null && minAge == null
+                && maxAge == null && subject == null && studentId == null;
+    }
+}
@@ -0,0 +1,136 @@
+package com.andriiv.ultimatesystems.email;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiPredicate;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+
+/**
+ * Bloom filter over the emails of one table, with the database check used for probable hits.
+ *
+ * @author Roman_Andriiv
+ */
+class EmailRegistry {
+
+    private final long expectedInsertions;
+    private final double falsePositiveRate;
+    private final double rebuildRatio;
+    private final Predicate<String> exists;
+    private final BiPredicate<String, Long> existsForOther;
+
+    private volatile BloomFilter filter;
+    private volatile BloomFilter building;
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+    private final AtomicLong inserted = new AtomicLong();
+    private final AtomicLong removed = new AtomicLong();
+
+    private final AtomicLong filterMisses = new AtomicLong();
+    private final AtomicLong databaseChecks = new AtomicLong();
+    private final AtomicLong falsePositives = new AtomicLong();
+
+    EmailRegistry(String entity, long expectedInsertions, double falsePositiveRate, double rebuildRatio,
+                  Predicate<String> exists, BiPredicate<String, Long> existsForOther, MeterRegistry meterRegistry) {
+        this.expectedInsertions = expectedInsertions;
+        this.falsePositiveRate = falsePositiveRate;
+        this.rebuildRatio = rebuildRatio;
+        this.exists = exists;
+        this.existsForOther = existsForOther;
+
+        Gauge.builder("email.filter.expected.fpp", this, r -> r.filter != null ? r.filter.expectedFalsePositiveRate() : 0)
+                .description("False-positive rate estimated from the filled bits")
+                .tag("entity", entity).register(meterRegistry);
+        Gauge.builder("email.filter.observed.fpp", this, EmailRegistry::observedFalsePositiveRate)
+                .description("Share of absent emails the filter reported as probably present")
+                .tag("entity", entity).register(meterRegistry);
+        Gauge.builder("email.filter.memory", this, r -> r.filter != null ? r.filter.memoryBytes() : 0)
+                .baseUnit("bytes").tag("entity", entity).register(meterRegistry);
+        FunctionCounter.builder("email.filter.database.checks", databaseChecks, AtomicLong::get)
+                .description("Uniqueness checks that fell through to the database")
+                .tag("entity", entity).register(meterRegistry);
+    }
+
+    /**
+     * Checks whether another row already uses the email.
+     *
+     * @param email the email
+     * @param ownId the id of the row being saved, null for a new row
+     * @return true if the email is taken
+     */
+    boolean isTaken(String email, Long ownId) {
+        BloomFilter current = filter;
+        if (current != null && !current.mightContain(email)) {
+            filterMisses.incrementAndGet();
+            return false;
+        }
+
+        databaseChecks.incrementAndGet();
+        boolean taken = ownId == null ? exists.test(email) : existsForOther.test(email, ownId);
+        if (!taken && current != null) {
+            falsePositives.incrementAndGet();
+        }
+        return taken;
+    }
+
+    /**
+     * Records a saved email. Only emails new to the filter are counted, so re-saving an unchanged row
+     * does not push the rebuild threshold away; a new email that is a false positive is not counted either.
+     *
+     * @param email the email
+     */
+    void added(String email) {
+        BloomFilter current = filter;
+        boolean isNew = current == null || current.put(email);
+        BloomFilter next = building;
+        if (next != null) {
+            next.put(email);
+        }
+        if (isNew) {
+            inserted.incrementAndGet();
+        }
+    }
+
+    /**
+     * Records removed emails. Bloom filter bits cannot be cleared, so a stale filter only costs
+     * extra database checks until it is rebuilt.
+     *
+     * @param count the number of removed emails
+     * @return true if enough emails were removed to justify a rebuild
+     */
+    boolean removed(long count) {
+        return removed.addAndGet(count) > rebuildRatio * Math.max(1, inserted.get());
+    }
+
+    /**
+     * Builds a fresh filter from the table and swaps it in.
+     *
+     * @param loader streams every stored email into the given filter and returns the count
+     */
+    void rebuild(ToLongFunction<BloomFilter> loader) {
+        if (!rebuilding.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            BloomFilter next = new BloomFilter(expectedInsertions, falsePositiveRate);
+            building = next;
+            long count = loader.applyAsLong(next);
+
+            filter = next;
+            inserted.set(count);
+            removed.set(0);
+        } finally {
+            building = null;
+            rebuilding.set(false);
+        }
+    }
+
+    private double observedFalsePositiveRate() {
+        long positives = falsePositives.get();
+        long absent = positives + filterMisses.get();
+        return absent == 0 ? 0 : (double) positives / absent;
+    }
+}
@@ -0,0 +1,230 @@
+package com.andriiv.ultimatesystems.email;
+
+import com.andriiv.ultimatesystems.entity.Student;
+import com.andriiv.ultimatesystems.entity.Teacher;
+import com.andriiv.ultimatesystems.exception.DuplicateEmailException;
+import com.andriiv.ultimatesystems.repository.StudentRepository;
+import com.andriiv.ultimatesystems.repository.TeacherRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Rejects student and teacher emails that are already in use.
+ * <p>
+ * Each table has an in-memory Bloom filter of its emails, built in the background at startup by streaming
+ * the table. An email the filter has never seen is unique without touching the database; only probable hits
+ * fall through to the indexed {@code exists} query. Until the first build completes every check goes to the
+ * database.
+ * <p>
+ * The filters are per node and only a pre-check: emails saved through other nodes are missing from them and two
+ * concurrent saves can both pass. The unique email indexes are what actually guarantees uniqueness, and
+ * {@link #duplicateEmail} maps their violations to {@link DuplicateEmailException}.
+ * <p>
+ * Precondition: the indexes are created by {@code ddl-auto=update}, which only logs a failed
+ * {@code create index} and starts anyway. A database that already holds duplicate emails must be
+ * de-duplicated before the first start, otherwise the indexes are missing and duplicates can still be stored.
+ *
+ * @author Roman_Andriiv
+ */
+@Component
+public class EmailUniquenessGuard {
+
+    private static final Logger log = LoggerFactory.getLogger(EmailUniquenessGuard.class);
+    private static final String STUDENT_EMAIL_INDEX = "idx_students_email";
+    private static final String TEACHER_EMAIL_INDEX = "idx_teachers_email";
+
+    private final StudentRepository studentRepository;
+    private final TeacherRepository teacherRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final EmailRegistry students;
+    private final EmailRegistry teachers;
+
+    private final ExecutorService rebuilder = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "email-filter-rebuild");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Autowired
+    public EmailUniquenessGuard(StudentRepository studentRepository, TeacherRepository teacherRepository,
+                                PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+                                @Value("${email.filter.expected-insertions:1000000}") long expectedInsertions,
+                                @Value("${email.filter.false-positive-rate:0.01}") double falsePositiveRate,
+                                @Value("${email.filter.rebuild-ratio:0.2}") double rebuildRatio) {
+        this.studentRepository = studentRepository;
+        this.teacherRepository = teacherRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+
+        this.students = new EmailRegistry("student", expectedInsertions, falsePositiveRate, rebuildRatio,
+                studentRepository::existsByEmail, studentRepository::existsByEmailAndIdNot, meterRegistry);
+        this.teachers = new EmailRegistry("teacher", expectedInsertions, falsePositiveRate, rebuildRatio,
+                teacherRepository::existsByEmail, teacherRepository::existsByEmailAndIdNot, meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildFilters() {
+        rebuildStudents();
+        rebuildTeachers();
+    }
+
+    /**
+     * Checks that no other student uses the email.
+     *
+     * @param email the email
+     * @param id    the id of the student being saved, null for a new student
+     * @throws DuplicateEmailException if the email is taken
+     */
+    public void checkStudentEmail(String email, Long id) throws DuplicateEmailException {
+        if (email != null && students.isTaken(email, id)) {
+            throw new DuplicateEmailException("Student email is already in use :: " + email);
+        }
+    }
+
+    /**
+     * Checks that no other teacher uses the email.
+     *
+     * @param email the email
+     * @param id    the id of the teacher being saved, null for a new teacher
+     * @throws DuplicateEmailException if the email is taken
+     */
+    public void checkTeacherEmail(String email, Long id) throws DuplicateEmailException {
+        if (email != null && teachers.isTaken(email, id)) {
+            throw new DuplicateEmailException("Teacher email is already in use :: " + email);
+        }
+    }
+
+    /**
+     * Maps a violation of a unique email index to {@link DuplicateEmailException}.
+     *
+     * @param e the violation raised by a save
+     * @return the exception to throw
+     * @throws DataIntegrityViolationException if the violation is not about an email
+     */
+    public DuplicateEmailException duplicateEmail(DataIntegrityViolationException e) {
+        String message = String.valueOf(e.getMostSpecificCause().getMessage()).toLowerCase(Locale.ROOT);
+        if (message.contains(STUDENT_EMAIL_INDEX)) {
+            return new DuplicateEmailException("Student email is already in use");
+        }
+        if (message.contains(TEACHER_EMAIL_INDEX)) {
+            return new DuplicateEmailException("Teacher email is already in use");
+        }
+        throw e;
+    }
+
+    /**
+     * Records the email of a saved student in the filter.
+     *
+     * @param email the email, may be null
+     */
+    public void studentSaved(String email) {
+        if (email != null) {
+            students.added(email);
+        }
+    }
+
+    /**
+     * Records the email of a saved teacher in the filter.
+     *
+     * @param email the email, may be null
+     */
+    public void teacherSaved(String email) {
+        if (email != null) {
+            teachers.added(email);
+        }
+    }
+
+    /**
+     * Records the emails of students saved by a cascade.
+     *
+     * @param saved the students, may be null
+     */
+    public void studentsSaved(Collection<Student> saved) {
+        if (saved != null) {
+            saved.forEach(student -> studentSaved(student.getEmail()));
+        }
+    }
+
+    /**
+     * Records the emails of teachers saved by a cascade.
+     *
+     * @param saved the teachers, may be null
+     */
+    public void teachersSaved(Collection<Teacher> saved) {
+        if (saved != null) {
+            saved.forEach(teacher -> teacherSaved(teacher.getEmail()));
+        }
+    }
+
+    /**
+     * Records removed or replaced student emails; the filter is rebuilt once too many of its emails are stale.
+     *
+     * @param count the number of emails no longer in use
+     */
+    public void studentsRemoved(long count) {
+        if (students.removed(count)) {
+            rebuildStudents();
+        }
+    }
+
+    /**
+     * Records removed or replaced teacher emails; the filter is rebuilt once too many of its emails are stale.
+     *
+     * @param count the number of emails no longer in use
+     */
+    public void teachersRemoved(long count) {
+        if (teachers.removed(count)) {
+            rebuildTeachers();
+        }
+    }
+
+    private void rebuildStudents() {
+        rebuild(students, studentRepository::streamAllEmails, "student");
+    }
+
+    private void rebuildTeachers() {
+        rebuild(teachers, teacherRepository::streamAllEmails, "teacher");
+    }
+
+    private void rebuild(EmailRegistry registry, Supplier<Stream<String>> emails, String entity) {
+        rebuilder.execute(() -> {
+            try {
+                registry.rebuild(filter -> readOnlyTransaction.execute(status -> {
+                    AtomicLong count = new AtomicLong();
+                    try (Stream<String> stream = emails.get()) {
+                        stream.forEach(email -> {
+                            filter.put(email);
+                            count.incrementAndGet();
+                        });
+                    }
+                    return count.get();
+                }));
+            } catch (RuntimeException e) {
+                log.warn("Could not build the {} email filter, checks keep using the database", entity, e);
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rebuilder.shutdownNow();
+    }
+}
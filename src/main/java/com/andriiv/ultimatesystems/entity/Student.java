@@ -14,7 +14,7 @@ import java.util.List;
 @Entity
 @Data
 @NoArgsConstructor
-@Table(name = "students")
+@Table(name = "students", indexes = @Index(name = "idx_students_email", columnList = "email", unique = true))
 public class Student {
 
     @Id
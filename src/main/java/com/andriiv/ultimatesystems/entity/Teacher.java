@@ -14,7 +14,7 @@ import java.util.List;
 @Entity
 @Data
 @NoArgsConstructor
-@Table(name = "teachers")
+@Table(name = "teachers", indexes = @Index(name = "idx_teachers_email", columnList = "email", unique = true))
 public class Teacher {
 
     @Id
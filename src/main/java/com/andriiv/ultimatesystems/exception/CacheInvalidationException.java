@@ -0,0 +1,21 @@
+package com.andriiv.ultimatesystems.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import java.io.Serial;
+
+/**
+ * Thrown when a write was stored but its cache invalidation was not acknowledged by the cluster.
+ *
+ * @author Roman_Andriiv
+ */
+@ResponseStatus(value = HttpStatus.SERVICE_UNAVAILABLE)
+public class CacheInvalidationException extends RuntimeException {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    public CacheInvalidationException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
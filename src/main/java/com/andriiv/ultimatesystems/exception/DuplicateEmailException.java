@@ -0,0 +1,19 @@
+package com.andriiv.ultimatesystems.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import java.io.Serial;
+
+/**
+ * @author Roman_Andriiv
+ */
+@ResponseStatus(value = HttpStatus.CONFLICT)
+public class DuplicateEmailException extends Exception {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    public DuplicateEmailException(String message) {
+        super(message);
+    }
+}
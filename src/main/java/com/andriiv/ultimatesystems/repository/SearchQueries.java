@@ -0,0 +1,119 @@
+package com.andriiv.ultimatesystems.repository;
+
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Shared paging for the criteria searches.
+ *
+ * @author Roman_Andriiv
+ */
+final class SearchQueries {
+
+    private SearchQueries() {
+    }
+
+    /**
+     * Runs a search and fetches one extra row to tell whether a next slice exists,
+     * so the {@code count(*)} query is only issued when the total is requested.
+     */
+    static <T> Slice<T> slice(EntityManager entityManager, Class<T> type,
+                              Predicates<T> predicates,
+                              Pageable pageable, boolean withTotal) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+
+        CriteriaQuery<T> query = cb.createQuery(type);
+        Root<T> root = query.from(type);
+        Sort sort = pageable.getSort().isSorted() ? pageable.getSort() : Sort.by("id");
+        Map<String, Object> parameters = new HashMap<>();
+        query.select(root)
+                .where(predicates.build(cb, query, root, parameters).toArray(Predicate[]::new))
+                .orderBy(QueryUtils.toOrders(sort, root, cb));
+
+        List<T> content = bind(entityManager.createQuery(query), parameters)
+                .setFirstResult((int) pageable.getOffset())
+                .setMaxResults(pageable.getPageSize() + 1)
+                .getResultList();
+        boolean hasNext = content.size() > pageable.getPageSize();
+        if (hasNext) {
+            content = content.subList(0, pageable.getPageSize());
+        }
+
+        if (!withTotal) {
+            return new SliceImpl<>(content, pageable, hasNext);
+        }
+        CriteriaQuery<Long> count = cb.createQuery(Long.class);
+        Root<T> countRoot = count.from(type);
+        Map<String, Object> countParameters = new HashMap<>();
+        count.select(cb.count(countRoot))
+                .where(predicates.build(cb, count, countRoot, countParameters).toArray(Predicate[]::new));
+
+        return new PageImpl<>(content, pageable,
+                bind(entityManager.createQuery(count), countParameters).getSingleResult());
+    }
+
+    /**
+     * Selects only the ids of the matching rows, without loading entities.
+     */
+    static <T> List<Long> ids(EntityManager entityManager, Class<T> type,
+                              Predicates<T> predicates) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<T> root = query.from(type);
+        Map<String, Object> parameters = new HashMap<>();
+        query.select(root.<Long>get("id"))
+                .where(predicates.build(cb, query, root, parameters).toArray(Predicate[]::new));
+
+        return bind(entityManager.createQuery(query), parameters).getResultList();
+    }
+
+    /**
+     * Builds an equality with a bound parameter; numeric values passed to {@code cb.equal} would be
+     * inlined as literals, giving every value its own statement in the plan cache.
+     */
+    static <V> Predicate equalsParameter(CriteriaBuilder cb, Map<String, Object> parameters,
+                                         Expression<V> column, Class<V> type, String name, V value) {
+        parameters.put(name, value);
+        return cb.equal(column, cb.parameter(type, name));
+    }
+
+    private static <X> TypedQuery<X> bind(TypedQuery<X> query, Map<String, Object> parameters) {
+        parameters.forEach(query::setParameter);
+        return query;
+    }
+
+    /**
+     * Builds a case-sensitive prefix match that can use an index on the column.
+     */
+    static Predicate startsWith(CriteriaBuilder cb, Expression<String> column, String prefix) {
+        String escaped = prefix.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+        return cb.like(column, escaped + "%", '\\');
+    }
+
+    /**
+     * Builds the where clause of a search; the query is passed in so that predicates can add subqueries,
+     * and the values of named parameters are put into the map to be bound on the typed query.
+     */
+    @FunctionalInterface
+    interface Predicates<T> {
+
+        List<Predicate> build(CriteriaBuilder cb, CriteriaQuery<?> query, Root<T> root,
+                              Map<String, Object> parameters);
+    }
+}
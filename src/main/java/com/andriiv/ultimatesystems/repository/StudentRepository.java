@@ -2,15 +2,91 @@ package com.andriiv.ultimatesystems.repository;
 
 import com.andriiv.ultimatesystems.entity.Student;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * @author Roman_Andriiv
  */
 @Repository
-public interface StudentRepository extends JpaRepository<Student,Long> {
+public interface StudentRepository extends JpaRepository<Student,Long>, StudentSearchRepository {
     List<Student> findByFirstName(String firstName);
     List<Student> findByLastName(String LastName);
+
+    /**
+     * Initializes the teachers of already loaded students with one query.
+     *
+     * @param students the students loaded in the current persistence context
+     * @return the same students with initialized teachers
+     */
+    @Query("select distinct s from Student s left join fetch s.teachers where s in :students")
+    List<Student> fetchTeachers(@Param("students") Collection<Student> students);
+
+    /**
+     * Finds the ids of the teachers linked to the given students.
+     *
+     * @param ids the student ids
+     * @return the linked teacher ids
+     */
+    @Query("select distinct t.id from Student s join s.teachers t where s.id in :ids")
+    List<Long> findTeacherIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Removes the students_teachers rows of the given students with one statement.
+     *
+     * @param ids the student ids
+     * @return the number of removed links
+     */
+    @Modifying
+    @Query(value = "delete from students_teachers where student_id in :ids", nativeQuery = true)
+    int deleteTeacherLinks(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Removes students with one statement, without loading them or cascading to teachers.
+     *
+     * @param ids the student ids
+     * @return the number of removed students
+     */
+    @Modifying(clearAutomatically = true)
+    @Query(value = "delete from students where id in :ids", nativeQuery = true)
+    int bulkDelete(@Param("ids") Collection<Long> ids);
+
+    boolean existsByEmail(String email);
+
+    boolean existsByEmailAndIdNot(String email, Long id);
+
+    /**
+     * Streams all student emails; must be consumed inside a transaction.
+     *
+     * @return the emails
+     */
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "1000"))
+    @Query("select s.email from Student s where s.email is not null")
+    Stream<String> streamAllEmails();
+
+    /**
+     * Streams the scalar columns of all students ordered by id, for the roster snapshot.
+     *
+     * @return rows of id, first name, last name, age, email and specialization
+     */
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "1000"))
+    @Query("select s.id, s.firstName, s.lastName, s.age, s.email, s.specialization from Student s order by s.id")
+    Stream<Object[]> streamSnapshotRows();
+
+    /**
+     * Streams the students_teachers rows ordered by student id, for the roster snapshot.
+     *
+     * @return rows of student id and teacher id
+     */
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "1000"))
+    @Query("select s.id, t.id from Student s join s.teachers t order by s.id")
+    Stream<Object[]> streamSnapshotTeacherLinks();
 }
@@ -0,0 +1,32 @@
+package com.andriiv.ultimatesystems.repository;
+
+import com.andriiv.ultimatesystems.dto.StudentSearchCriteria;
+import com.andriiv.ultimatesystems.entity.Student;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+
+import java.util.List;
+
+/**
+ * @author Roman_Andriiv
+ */
+public interface StudentSearchRepository {
+
+    /**
+     * Finds students matching all filled criteria with one query.
+     *
+     * @param criteria  the criteria
+     * @param pageable  the page
+     * @param withTotal whether to run the extra count query and return a {@link org.springframework.data.domain.Page}
+     * @return the slice of students
+     */
+    Slice<Student> search(StudentSearchCriteria criteria, Pageable pageable, boolean withTotal);
+
+    /**
+     * Finds the ids of the students matching all filled criteria.
+     *
+     * @param criteria the criteria
+     * @return the ids
+     */
+    List<Long> searchIds(StudentSearchCriteria criteria);
+}
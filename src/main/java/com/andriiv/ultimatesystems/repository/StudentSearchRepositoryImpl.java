@@ -0,0 +1,72 @@
+package com.andriiv.ultimatesystems.repository;
+
+import com.andriiv.ultimatesystems.dto.StudentSearchCriteria;
+import com.andriiv.ultimatesystems.entity.Student;
+import com.andriiv.ultimatesystems.entity.Teacher;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Join;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Subquery;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author Roman_Andriiv
+ */
+public class StudentSearchRepositoryImpl implements StudentSearchRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Slice<Student> search(StudentSearchCriteria criteria, Pageable pageable, boolean withTotal) {
+        return SearchQueries.slice(entityManager, Student.class,
+                (cb, query, student, parameters) -> predicates(criteria, cb, query, student, parameters),
+                pageable, withTotal);
+    }
+
+    @Override
+    public List<Long> searchIds(StudentSearchCriteria criteria) {
+        return SearchQueries.ids(entityManager, Student.class,
+                (cb, query, student, parameters) -> predicates(criteria, cb, query, student, parameters));
+    }
+
+    private static List<Predicate> predicates(StudentSearchCriteria criteria, CriteriaBuilder cb,
+                                              CriteriaQuery<?> query, Root<Student> student,
+                                              Map<String, Object> parameters) {
+        List<Predicate> predicates = new ArrayList<>();
+
+        if (criteria.getFirstName() != null) {
+            predicates.add(cb.equal(student.get("firstName"), criteria.getFirstName()));
+        }
+        if (criteria.getLastNamePrefix() != null) {
+            predicates.add(SearchQueries.startsWith(cb, student.<String>get("lastName"), criteria.getLastNamePrefix()));
+        }
+        if (criteria.getMinAge() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(student.<Integer>get("age"), criteria.getMinAge()));
+        }
+        if (criteria.getMaxAge() != null) {
+            predicates.add(cb.lessThanOrEqualTo(student.<Integer>get("age"), criteria.getMaxAge()));
+        }
+        if (criteria.getSpecialization() != null) {
+            predicates.add(cb.equal(student.get("specialization"), criteria.getSpecialization()));
+        }
+        //a semi-join: duplicated students_teachers rows must not repeat the student
+        if (criteria.getTeacherId() != null) {
+            Subquery<Long> link = query.subquery(Long.class);
+            Join<Student, Teacher> teacher = link.correlate(student).join("teachers");
+            link.select(teacher.<Long>get("id")).where(SearchQueries.equalsParameter(
+                    cb, parameters, teacher.<Long>get("id"), Long.class, "teacherId", criteria.getTeacherId()));
+            predicates.add(cb.exists(link));
+        }
+        return predicates;
+    }
+}
@@ -2,17 +2,92 @@ package com.andriiv.ultimatesystems.repository;
 
 import com.andriiv.ultimatesystems.entity.Teacher;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * @author Roman_Andriiv
  */
 @Repository
-public interface TeacherRepository extends JpaRepository<Teacher,Long> {
+public interface TeacherRepository extends JpaRepository<Teacher,Long>, TeacherSearchRepository {
     List<Teacher> findByFirstName(String firstName);
 
     List<Teacher> findByLastName(String lastName);
 
+    /**
+     * Initializes the students of already loaded teachers with one query.
+     *
+     * @param teachers the teachers loaded in the current persistence context
+     * @return the same teachers with initialized students
+     */
+    @Query("select distinct t from Teacher t left join fetch t.students where t in :teachers")
+    List<Teacher> fetchStudents(@Param("teachers") Collection<Teacher> teachers);
+
+    /**
+     * Finds the ids of the students linked to the given teachers.
+     *
+     * @param ids the teacher ids
+     * @return the linked student ids
+     */
+    @Query("select distinct s.id from Teacher t join t.students s where t.id in :ids")
+    List<Long> findStudentIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Removes the students_teachers rows of the given teachers with one statement.
+     *
+     * @param ids the teacher ids
+     * @return the number of removed links
+     */
+    @Modifying
+    @Query(value = "delete from students_teachers where teacher_id in :ids", nativeQuery = true)
+    int deleteStudentLinks(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Removes teachers with one statement, without loading them or cascading to students.
+     *
+     * @param ids the teacher ids
+     * @return the number of removed teachers
+     */
+    @Modifying(clearAutomatically = true)
+    @Query(value = "delete from teachers where id in :ids", nativeQuery = true)
+    int bulkDelete(@Param("ids") Collection<Long> ids);
+
+    boolean existsByEmail(String email);
+
+    boolean existsByEmailAndIdNot(String email, Long id);
+
+    /**
+     * Streams all teacher emails; must be consumed inside a transaction.
+     *
+     * @return the emails
+     */
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "1000"))
+    @Query("select t.email from Teacher t where t.email is not null")
+    Stream<String> streamAllEmails();
+
+    /**
+     * Streams the scalar columns of all teachers ordered by id, for the roster snapshot.
+     *
+     * @return rows of id, first name, last name, age, email and subject
+     */
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "1000"))
+    @Query("select t.id, t.firstName, t.lastName, t.age, t.email, t.subject from Teacher t order by t.id")
+    Stream<Object[]> streamSnapshotRows();
+
+    /**
+     * Streams the students_teachers rows ordered by teacher id, for the roster snapshot.
+     *
+     * @return rows of teacher id and student id
+     */
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "1000"))
+    @Query("select t.id, s.id from Teacher t join t.students s order by t.id")
+    Stream<Object[]> streamSnapshotStudentLinks();
 }
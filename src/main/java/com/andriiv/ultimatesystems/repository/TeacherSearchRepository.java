@@ -0,0 +1,32 @@
+package com.andriiv.ultimatesystems.repository;
+
+import com.andriiv.ultimatesystems.dto.TeacherSearchCriteria;
+import com.andriiv.ultimatesystems.entity.Teacher;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+
+import java.util.List;
+
+/**
+ * @author Roman_Andriiv
+ */
+public interface TeacherSearchRepository {
+
+    /**
+     * Finds teachers matching all filled criteria with one query.
+     *
+     * @param criteria  the criteria
+     * @param pageable  the page
+     * @param withTotal whether to run the extra count query and return a {@link org.springframework.data.domain.Page}
+     * @return the slice of teachers
+     */
+    Slice<Teacher> search(TeacherSearchCriteria criteria, Pageable pageable, boolean withTotal);
+
+    /**
+     * Finds the ids of the teachers matching all filled criteria.
+     *
+     * @param criteria the criteria
+     * @return the ids
+     */
+    List<Long> searchIds(TeacherSearchCriteria criteria);
+}
@@ -0,0 +1,72 @@
+package com.andriiv.ultimatesystems.repository;
+
+import com.andriiv.ultimatesystems.dto.TeacherSearchCriteria;
+import com.andriiv.ultimatesystems.entity.Student;
+import com.andriiv.ultimatesystems.entity.Teacher;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Join;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Subquery;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author Roman_Andriiv
+ */
+public class TeacherSearchRepositoryImpl implements TeacherSearchRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Slice<Teacher> search(TeacherSearchCriteria criteria, Pageable pageable, boolean withTotal) {
+        return SearchQueries.slice(entityManager, Teacher.class,
+                (cb, query, teacher, parameters) -> predicates(criteria, cb, query, teacher, parameters),
+                pageable, withTotal);
+    }
+
+    @Override
+    public List<Long> searchIds(TeacherSearchCriteria criteria) {
+        return SearchQueries.ids(entityManager, Teacher.class,
+                (cb, query, teacher, parameters) -> predicates(criteria, cb, query, teacher, parameters));
+    }
+
+    private static List<Predicate> predicates(TeacherSearchCriteria criteria, CriteriaBuilder cb,
+                                              CriteriaQuery<?> query, Root<Teacher> teacher,
+                                              Map<String, Object> parameters) {
+        List<Predicate> predicates = new ArrayList<>();
+
+        if (criteria.getFirstName() != null) {
+            predicates.add(cb.equal(teacher.get("firstName"), criteria.getFirstName()));
+        }
+        if (criteria.getLastNamePrefix() != null) {
+            predicates.add(SearchQueries.startsWith(cb, teacher.<String>get("lastName"), criteria.getLastNamePrefix()));
+        }
+        if (criteria.getMinAge() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(teacher.<Integer>get("age"), criteria.getMinAge()));
+        }
+        if (criteria.getMaxAge() != null) {
+            predicates.add(cb.lessThanOrEqualTo(teacher.<Integer>get("age"), criteria.getMaxAge()));
+        }
+        if (criteria.getSubject() != null) {
+            predicates.add(cb.equal(teacher.get("subject"), criteria.getSubject()));
+        }
+        //a semi-join: duplicated students_teachers rows must not repeat the teacher
+        if (criteria.getStudentId() != null) {
+            Subquery<Long> link = query.subquery(Long.class);
+            Join<Teacher, Student> student = link.correlate(teacher).join("students");
+            link.select(student.<Long>get("id")).where(SearchQueries.equalsParameter(
+                    cb, parameters, student.<Long>get("id"), Long.class, "studentId", criteria.getStudentId()));
+            predicates.add(cb.exists(link));
+        }
+        return predicates;
+    }
+}
@@ -0,0 +1,97 @@
+package com.andriiv.ultimatesystems.service;
+
+import com.andriiv.ultimatesystems.dto.BatchResponse;
+import com.andriiv.ultimatesystems.entity.Student;
+import com.andriiv.ultimatesystems.entity.Teacher;
+import com.andriiv.ultimatesystems.repository.StudentRepository;
+import com.andriiv.ultimatesystems.repository.TeacherRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Resolves many students or teachers by id with set-based queries instead of one lookup per id.
+ *
+ * @author Roman_Andriiv
+ */
+@Service
+public class BatchLookupService {
+
+    private final StudentRepository studentRepository;
+    private final TeacherRepository teacherRepository;
+    private final int chunkSize;
+
+    @Autowired
+    public BatchLookupService(StudentRepository studentRepository, TeacherRepository teacherRepository,
+                              @Value("${batch.lookup.chunk-size:500}") int chunkSize) {
+        this.studentRepository = studentRepository;
+        this.teacherRepository = teacherRepository;
+        this.chunkSize = IdChunks.checkSize(chunkSize, "batch.lookup.chunk-size");
+    }
+
+    /**
+     * Finds students with their teachers.
+     *
+     * @param ids the student ids
+     * @return the found students in request order and the missing ids
+     */
+    @Transactional(readOnly = true)
+    public BatchResponse<Student> findStudents(Collection<Long> ids) {
+        return lookup(ids, chunk -> {
+            List<Student> students = studentRepository.findAllById(chunk);
+            if (!students.isEmpty()) {
+                studentRepository.fetchTeachers(students);
+            }
+            return students;
+        }, Student::getId);
+    }
+
+    /**
+     * Finds teachers with their students.
+     *
+     * @param ids the teacher ids
+     * @return the found teachers in request order and the missing ids
+     */
+    @Transactional(readOnly = true)
+    public BatchResponse<Teacher> findTeachers(Collection<Long> ids) {
+        return lookup(ids, chunk -> {
+            List<Teacher> teachers = teacherRepository.findAllById(chunk);
+            if (!teachers.isEmpty()) {
+                teacherRepository.fetchStudents(teachers);
+            }
+            return teachers;
+        }, Teacher::getId);
+    }
+
+    private <T> BatchResponse<T> lookup(Collection<Long> ids, Function<List<Long>, List<T>> loader,
+                                        Function<T, Long> idOf) {
+        List<Long> distinctIds = IdChunks.distinct(ids);
+        Map<Long, T> byId = new HashMap<>(distinctIds.size() * 2);
+
+        for (List<Long> chunk : IdChunks.split(distinctIds, chunkSize)) {
+            for (T entity : loader.apply(chunk)) {
+                byId.put(idOf.apply(entity), entity);
+            }
+        }
+
+        List<T> found = new ArrayList<>(byId.size());
+        List<Long> missingIds = new ArrayList<>();
+        for (Long id : distinctIds) {
+            T entity = byId.get(id);
+            if (entity != null) {
+                found.add(entity);
+            } else {
+                missingIds.add(id);
+            }
+        }
+        return new BatchResponse<>(found, missingIds);
+    }
+}
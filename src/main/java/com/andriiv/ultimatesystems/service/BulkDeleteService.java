@@ -0,0 +1,129 @@
+package com.andriiv.ultimatesystems.service;
+
+import com.andriiv.ultimatesystems.cache.CacheInvalidationBus;
+import com.andriiv.ultimatesystems.dto.BulkDeleteResponse;
+import com.andriiv.ultimatesystems.dto.StudentSearchCriteria;
+import com.andriiv.ultimatesystems.dto.TeacherSearchCriteria;
+import com.andriiv.ultimatesystems.repository.StudentRepository;
+import com.andriiv.ultimatesystems.repository.TeacherRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Deletes students or teachers with set-based statements.
+ * <p>
+ * Unlike {@code repository.delete}, nothing is loaded into the persistence context and the
+ * {@code CascadeType.ALL} mappings are not followed: only the link rows and the selected rows go away.
+ *
+ * @author Roman_Andriiv
+ */
+@Service
+public class BulkDeleteService {
+
+    private final StudentRepository studentRepository;
+    private final TeacherRepository teacherRepository;
+    private final CacheInvalidationBus cacheInvalidationBus;
+    private final RosterCacheKeys rosterCacheKeys;
+    private final int chunkSize;
+
+    @Autowired
+    public BulkDeleteService(StudentRepository studentRepository, TeacherRepository teacherRepository,
+                             CacheInvalidationBus cacheInvalidationBus, RosterCacheKeys rosterCacheKeys,
+                             @Value("${bulk.delete.chunk-size:500}") int chunkSize) {
+        this.studentRepository = studentRepository;
+        this.teacherRepository = teacherRepository;
+        this.cacheInvalidationBus = cacheInvalidationBus;
+        this.rosterCacheKeys = rosterCacheKeys;
+        this.chunkSize = IdChunks.checkSize(chunkSize, "bulk.delete.chunk-size");
+    }
+
+    /**
+     * Deletes students and their students_teachers rows.
+     *
+     * @param ids the student ids
+     * @return the affected counts
+     */
+    @Transactional
+    public BulkDeleteResponse deleteStudents(Collection<Long> ids) {
+        Set<String> staleKeys = new HashSet<>();
+        BulkDeleteResponse response = delete(ids, chunk -> {
+            //the keys are resolved before the links they follow are gone
+            staleKeys.addAll(rosterCacheKeys.students(chunk));
+            return studentRepository.deleteTeacherLinks(chunk);
+        }, studentRepository::bulkDelete);
+
+        invalidateAfterCommit(staleKeys);
+        return response;
+    }
+
+    /**
+     * Deletes the students matching the criteria and their students_teachers rows.
+     *
+     * @param criteria the criteria
+     * @return the affected counts
+     */
+    @Transactional
+    public BulkDeleteResponse deleteStudents(StudentSearchCriteria criteria) {
+        return deleteStudents(studentRepository.searchIds(criteria));
+    }
+
+    /**
+     * Deletes teachers and their students_teachers rows.
+     *
+     * @param ids the teacher ids
+     * @return the affected counts
+     */
+    @Transactional
+    public BulkDeleteResponse deleteTeachers(Collection<Long> ids) {
+        Set<String> staleKeys = new HashSet<>();
+        BulkDeleteResponse response = delete(ids, chunk -> {
+            staleKeys.addAll(rosterCacheKeys.teachers(chunk));
+            return teacherRepository.deleteStudentLinks(chunk);
+        }, teacherRepository::bulkDelete);
+
+        invalidateAfterCommit(staleKeys);
+        return response;
+    }
+
+    /**
+     * Deletes the teachers matching the criteria and their students_teachers rows.
+     *
+     * @param criteria the criteria
+     * @return the affected counts
+     */
+    @Transactional
+    public BulkDeleteResponse deleteTeachers(TeacherSearchCriteria criteria) {
+        return deleteTeachers(teacherRepository.searchIds(criteria));
+    }
+
+    private BulkDeleteResponse delete(Collection<Long> ids, Function<List<Long>, Integer> deleteLinks,
+                                      Function<List<Long>, Integer> deleteRows) {
+        int deleted = 0;
+        int deletedLinks = 0;
+
+        for (List<Long> chunk : IdChunks.split(IdChunks.distinct(ids), chunkSize)) {
+            deletedLinks += deleteLinks.apply(chunk);
+            deleted += deleteRows.apply(chunk);
+        }
+        return new BulkDeleteResponse(deleted, deletedLinks);
+    }
+
+    private void invalidateAfterCommit(Set<String> staleKeys) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                cacheInvalidationBus.invalidate(staleKeys);
+            }
+        });
+    }
+}
@@ -0,0 +1,57 @@
+package com.andriiv.ultimatesystems.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * Splits id lists for {@code IN} queries.
+ *
+ * @author Roman_Andriiv
+ */
+final class IdChunks {
+
+    private IdChunks() {
+    }
+
+    /**
+     * Validates a chunk size property.
+     *
+     * @param chunkSize the configured size
+     * @param property  the property name, for the error message
+     * @return the chunk size
+     * @throws IllegalArgumentException if the size is below 1
+     */
+    static int checkSize(int chunkSize, String property) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException(property + " must be at least 1, was " + chunkSize);
+        }
+        return chunkSize;
+    }
+
+    /**
+     * Removes duplicated ids, keeping the first occurrence of each.
+     *
+     * @param ids the ids
+     * @return the distinct ids in their original order
+     */
+    static List<Long> distinct(Collection<Long> ids) {
+        return new ArrayList<>(new LinkedHashSet<>(ids));
+    }
+
+    /**
+     * Splits ids into consecutive chunks; keeps each IN list below the database bind parameter limits.
+     *
+     * @param ids       the ids
+     * @param chunkSize the maximum chunk size, at least 1
+     * @return views of the id list
+     */
+    static List<List<Long>> split(List<Long> ids, int chunkSize) {
+        List<List<Long>> chunks = new ArrayList<>((ids.size() + chunkSize - 1) / chunkSize);
+        for (int from = 0; from < ids.size(); from += chunkSize) {
+            chunks.add(ids.subList(from, Math.min(from + chunkSize, ids.size())));
+        }
+        return chunks;
+    }
+}
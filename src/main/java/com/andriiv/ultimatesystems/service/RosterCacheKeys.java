@@ -0,0 +1,92 @@
+package com.andriiv.ultimatesystems.service;
+
+import com.andriiv.ultimatesystems.cache.CacheKeys;
+import com.andriiv.ultimatesystems.repository.StudentRepository;
+import com.andriiv.ultimatesystems.repository.TeacherRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Resolves every cached response that renders a changed student, teacher or link.
+ * <p>
+ * The relation lists embed one more level: {@code students/{id}/getTeachers} renders the students of each
+ * teacher and {@code teachers/{id}/getStudents} the teachers of each student. A change therefore also
+ * evicts those lists for the students sharing a teacher and the teachers sharing a student.
+ *
+ * @author Roman_Andriiv
+ */
+@Service
+public class RosterCacheKeys {
+
+    private static final int CHUNK_SIZE = 500;
+
+    private final StudentRepository studentRepository;
+    private final TeacherRepository teacherRepository;
+
+    @Autowired
+    public RosterCacheKeys(StudentRepository studentRepository, TeacherRepository teacherRepository) {
+        this.studentRepository = studentRepository;
+        this.teacherRepository = teacherRepository;
+    }
+
+    /**
+     * Gets the keys rendering the given students: their own responses, their teachers' responses and
+     * the teacher lists of the students sharing those teachers.
+     *
+     * @param studentIds the student ids
+     * @return the keys
+     */
+    public Set<String> students(Collection<Long> studentIds) {
+        List<Long> teacherIds = linked(studentIds, studentRepository::findTeacherIds);
+
+        Set<String> keys = CacheKeys.students(studentIds);
+        keys.addAll(CacheKeys.teachers(teacherIds));
+        keys.addAll(CacheKeys.studentTeacherLists(linked(teacherIds, teacherRepository::findStudentIds)));
+        return keys;
+    }
+
+    /**
+     * Gets the keys rendering the given teachers: their own responses, their students' responses and
+     * the student lists of the teachers sharing those students.
+     *
+     * @param teacherIds the teacher ids
+     * @return the keys
+     */
+    public Set<String> teachers(Collection<Long> teacherIds) {
+        List<Long> studentIds = linked(teacherIds, teacherRepository::findStudentIds);
+
+        Set<String> keys = CacheKeys.teachers(teacherIds);
+        keys.addAll(CacheKeys.students(studentIds));
+        keys.addAll(CacheKeys.teacherStudentLists(linked(studentIds, studentRepository::findTeacherIds)));
+        return keys;
+    }
+
+    /**
+     * Gets the keys changed by adding or removing links between the given students and teachers.
+     *
+     * @param studentIds the student ids
+     * @param teacherIds the teacher ids
+     * @return the keys
+     */
+    public Set<String> links(Collection<Long> studentIds, Collection<Long> teacherIds) {
+        Set<String> keys = CacheKeys.students(studentIds);
+        keys.addAll(CacheKeys.teachers(teacherIds));
+        keys.addAll(CacheKeys.studentTeacherLists(linked(teacherIds, teacherRepository::findStudentIds)));
+        keys.addAll(CacheKeys.teacherStudentLists(linked(studentIds, studentRepository::findTeacherIds)));
+        return keys;
+    }
+
+    private static List<Long> linked(Collection<Long> ids, Function<List<Long>, List<Long>> finder) {
+        List<Long> linkedIds = new ArrayList<>();
+        for (List<Long> chunk : IdChunks.split(IdChunks.distinct(ids), CHUNK_SIZE)) {
+            linkedIds.addAll(finder.apply(chunk));
+        }
+        return linkedIds;
+    }
+}
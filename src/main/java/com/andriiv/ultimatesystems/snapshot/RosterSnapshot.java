@@ -0,0 +1,246 @@
+package com.andriiv.ultimatesystems.snapshot;
+
+import com.andriiv.ultimatesystems.entity.Student;
+import com.andriiv.ultimatesystems.entity.Teacher;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Read-only, memory-mapped view of a roster snapshot file.
+ * <p>
+ * File layout (big-endian):
+ * <pre>
+ * int magic, int version
+ * student records, teacher records
+ * student index, teacher index   -- (long id, long record offset) pairs sorted by id
+ * footer: long studentIndexOffset, int studentCount, long teacherIndexOffset, int teacherCount,
+ *         long createdAtMillis, int version, int magic
+ * </pre>
+ * A record is {@code long id, string firstName, string lastName, int age, string email,
+ * string specialization|subject, int linkCount, long[] linkedIds}; a string is an int byte length
+ * ({@code -1} for null) followed by UTF-8 bytes.
+ *
+ * @author Roman_Andriiv
+ */
+public final class RosterSnapshot {
+
+    static final int MAGIC = 0x52534e50;
+    static final int VERSION = 1;
+    static final int FOOTER_SIZE = 40;
+    static final int INDEX_ENTRY_SIZE = 16;
+
+    private final ByteBuffer buffer;
+    private final int studentIndexOffset;
+    private final int studentCount;
+    private final int teacherIndexOffset;
+    private final int teacherCount;
+    private final Instant createdAt;
+
+    private RosterSnapshot(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        int footer = buffer.limit() - FOOTER_SIZE;
+        if (footer < 8 || buffer.getInt(0) != MAGIC || buffer.getInt(footer + 36) != MAGIC
+                || buffer.getInt(footer + 32) != VERSION) {
+            throw new IOException("Not a roster snapshot or unsupported version");
+        }
+        long studentIndex = buffer.getLong(footer);
+        long teacherIndex = buffer.getLong(footer + 12);
+        this.studentCount = buffer.getInt(footer + 8);
+        this.teacherCount = buffer.getInt(footer + 20);
+        long recordsEnd = Math.min(studentIndex, teacherIndex);
+        checkIndex(buffer, studentIndex, studentCount, recordsEnd, footer);
+        checkIndex(buffer, teacherIndex, teacherCount, recordsEnd, footer);
+
+        this.studentIndexOffset = (int) studentIndex;
+        this.teacherIndexOffset = (int) teacherIndex;
+        this.createdAt = Instant.ofEpochMilli(buffer.getLong(footer + 24));
+    }
+
+    //a truncated or corrupted file must fail here, not with an IndexOutOfBoundsException on a request thread
+    private static void checkIndex(ByteBuffer buffer, long offset, int count, long recordsEnd, int footer)
+            throws IOException {
+        if (count < 0 || offset < 8 || offset + (long) count * INDEX_ENTRY_SIZE > footer) {
+            throw new IOException("Roster snapshot index is out of bounds");
+        }
+        long previousId = Long.MIN_VALUE;
+        for (int i = 0; i < count; i++) {
+            int entry = (int) offset + i * INDEX_ENTRY_SIZE;
+            long id = buffer.getLong(entry);
+            long recordOffset = buffer.getLong(entry + 8);
+            if ((i > 0 && id <= previousId) || recordOffset < 8 || recordOffset >= recordsEnd) {
+                throw new IOException("Roster snapshot index is corrupted");
+            }
+            previousId = id;
+        }
+    }
+
+    /**
+     * Maps a snapshot file. The mapping stays valid after the file is replaced.
+     *
+     * @param path the snapshot file
+     * @return the snapshot
+     * @throws IOException if the file cannot be mapped or is not a snapshot
+     */
+    public static RosterSnapshot open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Roster snapshot is larger than 2 GB :: " + path);
+            }
+            return new RosterSnapshot(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    /**
+     * Finds a student with its teachers.
+     *
+     * @param id the student id
+     * @return the student
+     */
+    public Optional<Student> findStudent(long id) {
+        int offset = find(studentIndexOffset, studentCount, id);
+        return offset < 0 ? Optional.empty() : Optional.of(readStudent(offset, true));
+    }
+
+    /**
+     * Finds a teacher with its students.
+     *
+     * @param id the teacher id
+     * @return the teacher
+     */
+    public Optional<Teacher> findTeacher(long id) {
+        int offset = find(teacherIndexOffset, teacherCount, id);
+        return offset < 0 ? Optional.empty() : Optional.of(readTeacher(offset, true));
+    }
+
+    public List<Student> allStudents() {
+        List<Student> students = new ArrayList<>(studentCount);
+        for (int i = 0; i < studentCount; i++) {
+            students.add(readStudent(recordOffset(studentIndexOffset, i), true));
+        }
+        return students;
+    }
+
+    public List<Teacher> allTeachers() {
+        List<Teacher> teachers = new ArrayList<>(teacherCount);
+        for (int i = 0; i < teacherCount; i++) {
+            teachers.add(readTeacher(recordOffset(teacherIndexOffset, i), true));
+        }
+        return teachers;
+    }
+
+    private Student readStudent(int offset, boolean withTeachers) {
+        Cursor cursor = new Cursor(offset);
+        Student student = new Student();
+        student.setId(cursor.nextLong());
+        student.setFirstName(cursor.nextString());
+        student.setLastName(cursor.nextString());
+        student.setAge(cursor.nextInt());
+        student.setEmail(cursor.nextString());
+        student.setSpecialization(cursor.nextString());
+
+        if (withTeachers) {
+            int count = cursor.nextInt();
+            List<Teacher> teachers = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                int teacherOffset = find(teacherIndexOffset, teacherCount, cursor.nextLong());
+                if (teacherOffset >= 0) {
+                    teachers.add(readTeacher(teacherOffset, false));
+                }
+            }
+            student.setTeachers(teachers);
+        }
+        return student;
+    }
+
+    private Teacher readTeacher(int offset, boolean withStudents) {
+        Cursor cursor = new Cursor(offset);
+        Teacher teacher = new Teacher();
+        teacher.setId(cursor.nextLong());
+        teacher.setFirstName(cursor.nextString());
+        teacher.setLastName(cursor.nextString());
+        teacher.setAge(cursor.nextInt());
+        teacher.setEmail(cursor.nextString());
+        teacher.setSubject(cursor.nextString());
+
+        if (withStudents) {
+            int count = cursor.nextInt();
+            List<Student> students = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                int studentOffset = find(studentIndexOffset, studentCount, cursor.nextLong());
+                if (studentOffset >= 0) {
+                    students.add(readStudent(studentOffset, false));
+                }
+            }
+            teacher.setStudents(students);
+        }
+        return teacher;
+    }
+
+    //binary search over the id-sorted index, returns the record offset or -1
+    private int find(int indexOffset, int count, long id) {
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            long middleId = buffer.getLong(indexOffset + middle * INDEX_ENTRY_SIZE);
+            if (middleId < id) {
+                low = middle + 1;
+            } else if (middleId > id) {
+                high = middle - 1;
+            } else {
+                return recordOffset(indexOffset, middle);
+            }
+        }
+        return -1;
+    }
+
+    private int recordOffset(int indexOffset, int position) {
+        return (int) buffer.getLong(indexOffset + position * INDEX_ENTRY_SIZE + 8);
+    }
+
+    //absolute reads only, so one mapped buffer can be shared by all request threads
+    private final class Cursor {
+
+        private int position;
+
+        private Cursor(int position) {
+            this.position = position;
+        }
+
+        private int nextInt() {
+            int value = buffer.getInt(position);
+            position += 4;
+            return value;
+        }
+
+        private long nextLong() {
+            long value = buffer.getLong(position);
+            position += 8;
+            return value;
+        }
+
+        private String nextString() {
+            int length = nextInt();
+            if (length < 0) {
+                return null;
+            }
+            byte[] bytes = new byte[length];
+            buffer.get(position, bytes);
+            position += length;
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.andriiv.ultimatesystems.snapshot;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * Holds the currently mapped roster snapshot and serves reads from it while the database is unreachable.
+ * <p>
+ * The last written file is mapped at startup, so a node can answer reads before its first successful
+ * database round trip. Responses served from the snapshot carry {@value #AGE_HEADER} (seconds since the
+ * snapshot was written) and a {@code Warning: 110} header.
+ * <p>
+ * The first read that cannot reach the database opens a circuit: further reads skip the database and go
+ * straight to the snapshot instead of each waiting for the connection timeout. Every
+ * {@code roster.snapshot.database-retry-ms} one read probes the database again and closes the circuit if it
+ * succeeds. Any other database error, e.g. a bad query or a constraint violation, is rethrown and leaves the
+ * circuit closed, since the snapshot would only hide it.
+ * <p>
+ * A read the snapshot cannot answer, i.e. a missing row or an empty roster, is reported as not found,
+ * the same as on the database path.
+ *
+ * @author Roman_Andriiv
+ */
+@Component
+public class RosterSnapshotStore {
+
+    public static final String AGE_HEADER = "X-Snapshot-Age";
+
+    private static final Logger log = LoggerFactory.getLogger(RosterSnapshotStore.class);
+
+    private final Path path;
+    private final long retryNanos;
+    private final AtomicBoolean probing = new AtomicBoolean();
+    private volatile RosterSnapshot current;
+    private volatile RuntimeException databaseFailure;
+    private volatile long failedAt;
+
+    public RosterSnapshotStore(@Value("${roster.snapshot.path:roster.snapshot}") String path,
+                               @Value("${roster.snapshot.database-retry-ms:5000}") long retryMs) {
+        this.path = Path.of(path);
+        this.retryNanos = TimeUnit.MILLISECONDS.toNanos(retryMs);
+    }
+
+    @PostConstruct
+    public void load() {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try {
+            reload();
+            log.info("Mapped roster snapshot {} written at {}", path, current.getCreatedAt());
+        } catch (IOException e) {
+            log.warn("Could not map the roster snapshot {}", path, e);
+        }
+    }
+
+    /**
+     * Maps the snapshot file again after it was replaced.
+     *
+     * @throws IOException if the file cannot be mapped
+     */
+    public void reload() throws IOException {
+        current = RosterSnapshot.open(path);
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Reads from the database, or from the snapshot while the database is failing.
+     *
+     * @param database the read against the database
+     * @param snapshot the same read against the snapshot
+     * @param <T>      the response body type
+     * @param <E>      the exception thrown by the database read, e.g. when the resource is not found
+     * @return the database response, or the snapshot response marked with its age
+     * @throws E if the database read throws it
+     */
+    public <T, E extends Exception> ResponseEntity<T> read(DatabaseRead<T, E> database,
+                                                           Function<RosterSnapshot, Optional<T>> snapshot) throws E {
+        RuntimeException failure = databaseFailure;
+        boolean probe = false;
+        if (failure != null) {
+            probe = System.nanoTime() - failedAt >= retryNanos && probing.compareAndSet(false, true);
+            if (!probe) {
+                return fallback(new DataAccessResourceFailureException("Database is unavailable", failure), snapshot);
+            }
+        }
+
+        boolean failed = false;
+        try {
+            return database.read();
+        } catch (DataAccessResourceFailureException | CannotCreateTransactionException
+                 | TransientDataAccessException e) {
+            failed = true;
+            databaseFailed(e);
+            return fallback(e, snapshot);
+        } finally {
+            //anything but a connectivity failure, e.g. a resource that was not found, means the database answered
+            if (!failed) {
+                databaseAvailable();
+            }
+            if (probe) {
+                probing.set(false);
+            }
+        }
+    }
+
+    /**
+     * Answers a read from the snapshot after the database failed.
+     *
+     * @param cause the database failure, rethrown when no snapshot is mapped
+     * @param read  the read against the snapshot, empty when there is nothing to return
+     * @param <T>   the response body type
+     * @return the response, or not found, marked with the snapshot age
+     */
+    public <T> ResponseEntity<T> fallback(RuntimeException cause, Function<RosterSnapshot, Optional<T>> read) {
+        RosterSnapshot snapshot = current;
+        if (snapshot == null) {
+            throw cause;
+        }
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(AGE_HEADER, String.valueOf(Duration.between(snapshot.getCreatedAt(), Instant.now()).toSeconds()));
+        headers.set(HttpHeaders.WARNING, "110 - \"Response is Stale\"");
+        return read.apply(snapshot)
+                .map(body -> new ResponseEntity<>(body, headers, HttpStatus.OK))
+                .orElseGet(() -> new ResponseEntity<>(headers, HttpStatus.NOT_FOUND));
+    }
+
+    private void databaseAvailable() {
+        if (databaseFailure != null) {
+            databaseFailure = null;
+            log.info("Database is reachable again, reads no longer use the roster snapshot");
+        }
+    }
+
+    private void databaseFailed(RuntimeException e) {
+        failedAt = System.nanoTime();
+        if (databaseFailure == null) {
+            log.warn("Database read failed, serving reads from the roster snapshot", e);
+        }
+        databaseFailure = e;
+    }
+
+    /**
+     * A read against the database.
+     *
+     * @param <T> the response body type
+     * @param <E> the checked exception the read may throw
+     */
+    @FunctionalInterface
+    public interface DatabaseRead<T, E extends Exception> {
+
+        ResponseEntity<T> read() throws E;
+    }
+}
@@ -0,0 +1,227 @@
+package com.andriiv.ultimatesystems.snapshot;
+
+import com.andriiv.ultimatesystems.repository.StudentRepository;
+import com.andriiv.ultimatesystems.repository.TeacherRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Periodically writes all students, teachers and their links to the roster snapshot file
+ * and makes {@link RosterSnapshotStore} map the new file.
+ *
+ * @author Roman_Andriiv
+ */
+@Component
+public class RosterSnapshotWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(RosterSnapshotWriter.class);
+
+    private final StudentRepository studentRepository;
+    private final TeacherRepository teacherRepository;
+    private final RosterSnapshotStore rosterSnapshotStore;
+    private final TransactionTemplate readOnlyTransaction;
+    private final boolean enabled;
+
+    @Autowired
+    public RosterSnapshotWriter(StudentRepository studentRepository, TeacherRepository teacherRepository,
+                                RosterSnapshotStore rosterSnapshotStore, PlatformTransactionManager transactionManager,
+                                @Value("${roster.snapshot.enabled:true}") boolean enabled) {
+        this.studentRepository = studentRepository;
+        this.teacherRepository = teacherRepository;
+        this.rosterSnapshotStore = rosterSnapshotStore;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        //the four streams must see one state, or a link may point to a row written after its table was read
+        this.readOnlyTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.enabled = enabled;
+    }
+
+    @Scheduled(initialDelayString = "${roster.snapshot.initial-delay-ms:60000}",
+            fixedDelayString = "${roster.snapshot.interval-ms:300000}")
+    public void writeScheduled() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            write();
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not write the roster snapshot, keeping the previous one", e);
+        }
+    }
+
+    /**
+     * Writes a new snapshot next to the current one, then atomically replaces it.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    public void write() throws IOException {
+        Path path = rosterSnapshotStore.getPath();
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        long createdAt = System.currentTimeMillis();
+
+        try (SnapshotOutput out = new SnapshotOutput(temporary)) {
+            out.writeInt(RosterSnapshot.MAGIC);
+            out.writeInt(RosterSnapshot.VERSION);
+
+            Index[] indexes = readOnlyTransaction.execute(status -> {
+                try (Stream<Object[]> students = studentRepository.streamSnapshotRows();
+                     Stream<Object[]> studentLinks = studentRepository.streamSnapshotTeacherLinks();
+                     Stream<Object[]> teachers = teacherRepository.streamSnapshotRows();
+                     Stream<Object[]> teacherLinks = teacherRepository.streamSnapshotStudentLinks()) {
+                    Index studentIndex = writeRecords(out, students, studentLinks);
+                    Index teacherIndex = writeRecords(out, teachers, teacherLinks);
+                    return new Index[]{studentIndex, teacherIndex};
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+
+            long studentIndexOffset = indexes[0].writeTo(out);
+            long teacherIndexOffset = indexes[1].writeTo(out);
+
+            out.writeLong(studentIndexOffset);
+            out.writeInt(indexes[0].size);
+            out.writeLong(teacherIndexOffset);
+            out.writeInt(indexes[1].size);
+            out.writeLong(createdAt);
+            out.writeInt(RosterSnapshot.VERSION);
+            out.writeInt(RosterSnapshot.MAGIC);
+
+            if (out.position > Integer.MAX_VALUE) {
+                throw new IOException("Roster snapshot is larger than 2 GB");
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        rosterSnapshotStore.reload();
+    }
+
+    //merge-joins the id-ordered rows with the owner-ordered link rows
+    private static Index writeRecords(SnapshotOutput out, Stream<Object[]> rows, Stream<Object[]> links)
+            throws IOException {
+        Index index = new Index();
+        Iterator<Object[]> linkIterator = links.iterator();
+        Object[] link = linkIterator.hasNext() ? linkIterator.next() : null;
+        long[] linkedIds = new long[16];
+
+        Iterator<Object[]> rowIterator = rows.iterator();
+        while (rowIterator.hasNext()) {
+            Object[] row = rowIterator.next();
+            long id = ((Number) row[0]).longValue();
+
+            int linkCount = 0;
+            while (link != null && ((Number) link[0]).longValue() <= id) {
+                if (((Number) link[0]).longValue() == id) {
+                    if (linkCount == linkedIds.length) {
+                        linkedIds = Arrays.copyOf(linkedIds, linkCount * 2);
+                    }
+                    linkedIds[linkCount++] = ((Number) link[1]).longValue();
+                }
+                link = linkIterator.hasNext() ? linkIterator.next() : null;
+            }
+
+            index.add(id, out.position);
+            out.writeLong(id);
+            out.writeString((String) row[1]);
+            out.writeString((String) row[2]);
+            out.writeInt(((Number) row[3]).intValue());
+            out.writeString((String) row[4]);
+            out.writeString((String) row[5]);
+            out.writeInt(linkCount);
+            for (int i = 0; i < linkCount; i++) {
+                out.writeLong(linkedIds[i]);
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Id to record offset pairs, collected in id order.
+     */
+    private static final class Index {
+
+        private long[] ids = new long[1024];
+        private long[] offsets = new long[1024];
+        private int size;
+
+        private void add(long id, long offset) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                offsets = Arrays.copyOf(offsets, size * 2);
+            }
+            ids[size] = id;
+            offsets[size] = offset;
+            size++;
+        }
+
+        private long writeTo(SnapshotOutput out) throws IOException {
+            long start = out.position;
+            for (int i = 0; i < size; i++) {
+                out.writeLong(ids[i]);
+                out.writeLong(offsets[i]);
+            }
+            return start;
+        }
+    }
+
+    /**
+     * Buffered big-endian output that tracks its byte position.
+     */
+    private static final class SnapshotOutput implements AutoCloseable {
+
+        private final DataOutputStream out;
+        private long position;
+
+        private SnapshotOutput(Path path) throws IOException {
+            this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), 1 << 16));
+        }
+
+        private void writeInt(int value) throws IOException {
+            out.writeInt(value);
+            position += 4;
+        }
+
+        private void writeLong(long value) throws IOException {
+            out.writeLong(value);
+            position += 8;
+        }
+
+        private void writeString(String value) throws IOException {
+            if (value == null) {
+                writeInt(-1);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeInt(bytes.length);
+            out.write(bytes);
+            position += bytes.length;
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package com.andriiv.ultimatesystems.cache;
+
+import com.andriiv.ultimatesystems.exception.CacheInvalidationException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CacheInvalidationBusTest {
+
+    private static final String PEER = "peer";
+
+    private final LoopbackInvalidationTransport transport = new LoopbackInvalidationTransport();
+    private final List<InvalidationMessage> published = new CopyOnWriteArrayList<>();
+    private final ResponseByteCache cacheA = new ResponseByteCache(1 << 20);
+    private final ResponseByteCache cacheB = new ResponseByteCache(1 << 20);
+    private CacheInvalidationBus busA;
+    private CacheInvalidationBus busB;
+
+    @BeforeEach
+    void setUp() {
+        transport.subscribe(published::add);
+        busA = bus(cacheA, transport, 100, 2);
+        busB = bus(cacheB, transport, 100, 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        busA.shutdown();
+        busB.shutdown();
+    }
+
+    @Test
+    void invalidationEvictsOtherNodes() {
+        store(cacheB, "students/1");
+        store(cacheB, "students/2");
+
+        busA.invalidate(Set.of("students/1"));
+
+        assertFalse(cacheB.isCached("students/1"));
+        assertTrue(cacheB.isCached("students/2"));
+    }
+
+    @Test
+    void concurrentInvalidationsShareOneBatch() throws Exception {
+        CacheInvalidationBus bus = bus(cacheA, transport, 200, 100);
+        try {
+            CompletableFuture<Void> first = CompletableFuture.runAsync(
+                    () -> bus.invalidate(Set.of("students/1", "teachers/1")));
+            CompletableFuture<Void> second = CompletableFuture.runAsync(
+                    () -> bus.invalidate(Set.of("students/1", "teachers/2")));
+            CompletableFuture.allOf(first, second).get(5, TimeUnit.SECONDS);
+        } finally {
+            bus.shutdown();
+        }
+
+        List<InvalidationMessage> batches = published.stream()
+                .filter(message -> message.kind() == InvalidationMessage.Kind.BATCH).toList();
+        assertEquals(1, batches.size());
+        assertEquals(Set.of("students/1", "teachers/1", "teachers/2"), batches.get(0).keys());
+        assertFalse(batches.get(0).clearAll());
+    }
+
+    @Test
+    void gapInSequenceClearsCache() {
+        transport.publish(InvalidationMessage.batch(PEER, 1, Set.of("students/1"), false));
+        store(cacheB, "students/2");
+
+        transport.publish(InvalidationMessage.batch(PEER, 3, Set.of("students/3"), false));
+
+        assertFalse(cacheB.isCached("students/2"));
+    }
+
+    @Test
+    void replayedBatchClearsCache() {
+        transport.publish(InvalidationMessage.batch(PEER, 1, Set.of("students/1"), false));
+        transport.publish(InvalidationMessage.batch(PEER, 2, Set.of("students/1"), false));
+        store(cacheB, "students/2");
+
+        transport.publish(InvalidationMessage.batch(PEER, 1, Set.of("students/1"), false));
+
+        assertFalse(cacheB.isCached("students/2"));
+    }
+
+    @Test
+    void batchesInSequenceEvictOnlyTheirKeys() {
+        store(cacheB, "students/1");
+        store(cacheB, "students/2");
+
+        transport.publish(InvalidationMessage.batch(PEER, 1, Set.of("students/1"), false));
+
+        assertFalse(cacheB.isCached("students/1"));
+        assertTrue(cacheB.isCached("students/2"));
+    }
+
+    @Test
+    void oversizedBatchIsPublishedAsClearAll() {
+        store(cacheB, "students/9");
+
+        busA.invalidate(Set.of("students/1", "students/2", "students/3"));
+
+        assertEquals(1, published.size());
+        assertTrue(published.get(0).clearAll());
+        assertTrue(published.get(0).keys().isEmpty());
+        assertFalse(cacheB.isCached("students/9"));
+    }
+
+    @Test
+    void heartbeatAheadOfLastBatchClearsCache() {
+        transport.publish(InvalidationMessage.batch(PEER, 1, Set.of("students/1"), false));
+        store(cacheB, "students/2");
+
+        transport.publish(InvalidationMessage.heartbeat(PEER, 1));
+        assertTrue(cacheB.isCached("students/2"));
+
+        transport.publish(InvalidationMessage.heartbeat(PEER, 2));
+        assertFalse(cacheB.isCached("students/2"));
+    }
+
+    @Test
+    void silentPeerClearsAndDisablesCacheUntilHeardAgain() {
+        busA.heartbeat();
+        store(cacheB, "students/1");
+
+        busB.checkPeers(System.nanoTime() + TimeUnit.SECONDS.toNanos(10));
+
+        assertFalse(cacheB.isCached("students/1"));
+        assertFalse(busB.isCacheUsable());
+
+        busA.heartbeat();
+        assertTrue(busB.isCacheUsable());
+    }
+
+    @Test
+    void expiredPeerIsForgotten() {
+        busA.heartbeat();
+
+        busB.checkPeers(System.nanoTime() + TimeUnit.SECONDS.toNanos(10));
+        busB.checkPeers(System.nanoTime() + TimeUnit.MINUTES.toNanos(10));
+
+        assertTrue(busB.isCacheUsable());
+    }
+
+    @Test
+    void leavingPeerIsForgottenAtOnce() {
+        busA.heartbeat();
+        busA.shutdown();
+
+        busB.checkPeers(System.nanoTime() + TimeUnit.SECONDS.toNanos(10));
+
+        assertTrue(busB.isCacheUsable());
+    }
+
+    @Test
+    void leaveAheadOfLastBatchClearsCache() {
+        transport.publish(InvalidationMessage.batch(PEER, 1, Set.of("students/1"), false));
+        store(cacheB, "students/2");
+
+        transport.publish(InvalidationMessage.leave(PEER, 2));
+
+        assertFalse(cacheB.isCached("students/2"));
+    }
+
+    @Test
+    void unacknowledgedBatchFailsTheWrite() {
+        CacheInvalidationBus bus = bus(cacheA, new FailingTransport(), 100, 100);
+        store(cacheA, "students/1");
+        try {
+            assertThrows(CacheInvalidationException.class, () -> bus.invalidate(Set.of("students/1")));
+        } finally {
+            bus.shutdown();
+        }
+        assertFalse(cacheA.isCached("students/1"));
+    }
+
+    private static CacheInvalidationBus bus(ResponseByteCache cache, InvalidationTransport transport,
+                                            long batchWindowMs, int maxBatchKeys) {
+        return new CacheInvalidationBus(cache, transport, batchWindowMs, 2000, maxBatchKeys, 0, 3000, 60000);
+    }
+
+    private static void store(ResponseByteCache cache, String key) {
+        assertTrue(cache.finishRender(key, cache.beginRender(key), new byte[]{'{', '}'}));
+    }
+
+    private static class FailingTransport implements InvalidationTransport {
+
+        @Override
+        public void publish(InvalidationMessage message) {
+            throw new IllegalStateException("transport is down");
+        }
+
+        @Override
+        public void subscribe(Consumer<InvalidationMessage> listener) {
+        }
+    }
+}
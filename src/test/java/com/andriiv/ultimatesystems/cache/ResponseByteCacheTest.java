@@ -0,0 +1,75 @@
+package com.andriiv.ultimatesystems.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ResponseByteCacheTest {
+
+    @Test
+    void renderStartedBeforeEvictionIsNotStored() {
+        ResponseByteCache cache = new ResponseByteCache(1024);
+
+        long version = cache.beginRender("students/1");
+        cache.evict("students/1");
+
+        assertFalse(cache.finishRender("students/1", version, body(10)));
+        assertFalse(cache.isCached("students/1"));
+        assertEquals(0, cache.slotCount());
+    }
+
+    @Test
+    void evictingUnknownKeysKeepsNoSlots() {
+        ResponseByteCache cache = new ResponseByteCache(1024);
+
+        for (int id = 0; id < 100; id++) {
+            cache.evict("students/" + id);
+        }
+        cache.finishRender("students/1", cache.beginRender("students/1"), null);
+
+        assertEquals(0, cache.slotCount());
+    }
+
+    @Test
+    void leastRecentlyServedEntriesAreEvictedWhenFull() {
+        ResponseByteCache cache = new ResponseByteCache(300);
+
+        store(cache, "students/1", 100);
+        store(cache, "students/2", 100);
+        store(cache, "students/3", 100);
+        //serving students/1 makes students/2 the least recently used entry
+        cache.finishRender("students/1", cache.beginRender("students/1"), body(100));
+        store(cache, "students/4", 100);
+
+        assertTrue(cache.isCached("students/1"));
+        assertFalse(cache.isCached("students/2"));
+        assertTrue(cache.isCached("students/4"));
+        assertTrue(cache.usedBytes() <= 300);
+        assertEquals(cache.usedBytes() / 100, cache.slotCount());
+    }
+
+    @Test
+    void clearEvictsRendersInFlight() {
+        ResponseByteCache cache = new ResponseByteCache(1024);
+        store(cache, "teachers/1", 10);
+
+        long version = cache.beginRender("teachers/2");
+        cache.clear();
+
+        assertFalse(cache.finishRender("teachers/2", version, body(10)));
+        assertFalse(cache.isCached("teachers/1"));
+        assertEquals(0, cache.usedBytes());
+    }
+
+    private static void store(ResponseByteCache cache, String key, int size) {
+        assertTrue(cache.finishRender(key, cache.beginRender(key), body(size)));
+    }
+
+    private static byte[] body(int size) {
+        return "x".repeat(size).getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,61 @@
+package com.andriiv.ultimatesystems.email;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BloomFilterTest {
+
+    private static final int INSERTIONS = 20_000;
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    @Test
+    void addedValuesAreAlwaysFound() {
+        BloomFilter filter = filled();
+
+        for (int i = 0; i < INSERTIONS; i++) {
+            assertTrue(filter.mightContain(email(i)), email(i));
+        }
+    }
+
+    @Test
+    void measuredFalsePositiveRateIsNearConfiguredRate() {
+        BloomFilter filter = filled();
+
+        int probes = 200_000;
+        int falsePositives = 0;
+        for (int i = INSERTIONS; i < INSERTIONS + probes; i++) {
+            if (filter.mightContain(email(i))) {
+                falsePositives++;
+            }
+        }
+
+        double measured = (double) falsePositives / probes;
+        assertTrue(measured > FALSE_POSITIVE_RATE / 2 && measured < FALSE_POSITIVE_RATE * 1.5,
+                "measured false-positive rate " + measured);
+        assertEquals(measured, filter.expectedFalsePositiveRate(), FALSE_POSITIVE_RATE / 2);
+    }
+
+    @Test
+    void putReportsOnlyNewValues() {
+        BloomFilter filter = new BloomFilter(INSERTIONS, FALSE_POSITIVE_RATE);
+
+        assertTrue(filter.put("ann@example.com"));
+        assertFalse(filter.put("ann@example.com"));
+        assertTrue(filter.put("bob@example.com"));
+    }
+
+    private static BloomFilter filled() {
+        BloomFilter filter = new BloomFilter(INSERTIONS, FALSE_POSITIVE_RATE);
+        for (int i = 0; i < INSERTIONS; i++) {
+            filter.put(email(i));
+        }
+        return filter;
+    }
+
+    private static String email(int i) {
+        return "student" + i + "@school.com";
+    }
+}
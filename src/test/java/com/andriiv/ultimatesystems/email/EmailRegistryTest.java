@@ -0,0 +1,87 @@
+package com.andriiv.ultimatesystems.email;
+
+import com.andriiv.ultimatesystems.repository.StudentRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class EmailRegistryTest {
+
+    private static final List<String> STORED = List.of("ann@example.com", "bob@example.com", "cid@example.com",
+            "dan@example.com", "eve@example.com", "fay@example.com", "gus@example.com", "hal@example.com",
+            "ivy@example.com", "jon@example.com");
+
+    private final StudentRepository studentRepository = mock(StudentRepository.class);
+    private final EmailRegistry registry = new EmailRegistry("student", 1000, 0.01, 0.2,
+            studentRepository::existsByEmail, studentRepository::existsByEmailAndIdNot, new SimpleMeterRegistry());
+
+    @Test
+    void everyCheckGoesToDatabaseUntilFilterIsBuilt() {
+        when(studentRepository.existsByEmail("ann@example.com")).thenReturn(true);
+
+        assertTrue(registry.isTaken("ann@example.com", null));
+        assertFalse(registry.isTaken("new@example.com", null));
+
+        verify(studentRepository, times(2)).existsByEmail(anyString());
+    }
+
+    @Test
+    void probableHitFallsThroughToDatabase() {
+        rebuild();
+        when(studentRepository.existsByEmail("ann@example.com")).thenReturn(true);
+
+        assertTrue(registry.isTaken("ann@example.com", null));
+        assertFalse(registry.isTaken("ann@example.com", 1L));
+
+        verify(studentRepository).existsByEmail("ann@example.com");
+        verify(studentRepository).existsByEmailAndIdNot("ann@example.com", 1L);
+    }
+
+    @Test
+    void unseenEmailSkipsDatabase() {
+        rebuild();
+
+        assertFalse(registry.isTaken("new@example.com", null));
+
+        verify(studentRepository, never()).existsByEmail(anyString());
+    }
+
+    @Test
+    void removingTooManyEmailsTriggersRebuild() {
+        rebuild();
+
+        assertFalse(registry.removed(2));
+        assertTrue(registry.removed(1));
+    }
+
+    @Test
+    void resavedEmailsDoNotDelayRebuild() {
+        rebuild();
+        //an update re-adds the emails of the cascaded rows on every save
+        for (int i = 0; i < 100; i++) {
+            STORED.forEach(registry::added);
+        }
+        registry.added("new@example.com");
+
+        //the threshold is 20% of the 11 distinct emails, not of the 1011 saves
+        assertFalse(registry.removed(2));
+        assertTrue(registry.removed(1));
+    }
+
+    private void rebuild() {
+        registry.rebuild(filter -> {
+            STORED.forEach(filter::put);
+            return STORED.size();
+        });
+    }
+}
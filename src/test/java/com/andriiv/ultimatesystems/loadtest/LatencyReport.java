@@ -0,0 +1,108 @@
+package com.andriiv.ultimatesystems.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-operation latency histograms, recorded in microseconds and reported in milliseconds.
+ * <p>
+ * Failed requests are kept in their own histograms: a fast error response must not pull the
+ * percentiles of the successful ones down.
+ *
+ * @author Roman_Andriiv
+ */
+final class LatencyReport {
+
+    private static final double MICROS_PER_MILLI = 1000.0;
+
+    private final Map<String, Histogram> histograms = new LinkedHashMap<>();
+    private final Map<String, Histogram> failures = new LinkedHashMap<>();
+
+    LatencyReport(List<String> operations) {
+        for (String operation : operations) {
+            histograms.put(operation, new ConcurrentHistogram(3));
+            failures.put(operation, new ConcurrentHistogram(3));
+        }
+    }
+
+    void record(String operation, long latencyNanos, boolean success) {
+        (success ? histograms : failures).get(operation).recordValue(TimeUnit.NANOSECONDS.toMicros(latencyNanos));
+    }
+
+    /**
+     * Gets the p99 of the successful requests of an operation.
+     *
+     * @param operation the operation
+     * @return the p99 in milliseconds
+     */
+    double p99Millis(String operation) {
+        return histograms.get(operation).getValueAtPercentile(99.0) / MICROS_PER_MILLI;
+    }
+
+    /**
+     * Gets the number of failed requests, i.e. transport errors and responses with a 4xx or 5xx status.
+     *
+     * @param operation the operation
+     * @return the number of failed requests
+     */
+    long errorCount(String operation) {
+        return failures.get(operation).getTotalCount();
+    }
+
+    /**
+     * Gets the number of failed requests of all operations.
+     *
+     * @return the number of failed requests
+     */
+    long errorCount() {
+        return failures.values().stream().mapToLong(Histogram::getTotalCount).sum();
+    }
+
+    void print(PrintStream out) {
+        out.printf("%-20s %9s %7s %10s %10s %10s %10s%n", "operation", "count", "errors",
+                "p50 ms", "p99 ms", "p999 ms", "max ms");
+        histograms.forEach((operation, histogram) -> out.printf("%-20s %9d %7d %10.2f %10.2f %10.2f %10.2f%n",
+                operation, histogram.getTotalCount(), errorCount(operation),
+                histogram.getValueAtPercentile(50.0) / MICROS_PER_MILLI,
+                histogram.getValueAtPercentile(99.0) / MICROS_PER_MILLI,
+                histogram.getValueAtPercentile(99.9) / MICROS_PER_MILLI,
+                histogram.getMaxValue() / MICROS_PER_MILLI));
+    }
+
+    /**
+     * Writes the summary and one percentile distribution ({@code .hgrm}) per operation; the failed
+     * requests of an operation go to {@code <operation>-errors.hgrm}.
+     *
+     * @param directory the output directory
+     * @throws IOException if writing fails
+     */
+    void write(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        try (PrintStream out = new PrintStream(Files.newOutputStream(directory.resolve("report.txt")))) {
+            print(out);
+        }
+        for (Map.Entry<String, Histogram> entry : histograms.entrySet()) {
+            writeDistribution(directory.resolve(entry.getKey() + ".hgrm"), entry.getValue());
+        }
+        for (Map.Entry<String, Histogram> entry : failures.entrySet()) {
+            if (entry.getValue().getTotalCount() > 0) {
+                writeDistribution(directory.resolve(entry.getKey() + "-errors.hgrm"), entry.getValue());
+            }
+        }
+    }
+
+    private static void writeDistribution(Path file, Histogram histogram) throws IOException {
+        try (PrintStream out = new PrintStream(Files.newOutputStream(file))) {
+            histogram.outputPercentileDistribution(out, MICROS_PER_MILLI);
+        }
+    }
+}
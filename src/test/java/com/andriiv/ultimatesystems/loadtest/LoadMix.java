@@ -0,0 +1,143 @@
+package com.andriiv.ultimatesystems.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Weighted mix of controller endpoints, e.g. {@code getStudent=30,saveStudent=10}.
+ *
+ * @author Roman_Andriiv
+ */
+final class LoadMix {
+
+    static final String DEFAULT = "getStudent=25,getStudentTeachers=15,getTeacherStudents=10,pageStudents=10,"
+            + "pageTeachersSorted=5,filterStudents=10,batchStudents=5,saveStudent=10,addTeacher=10";
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+    private static final AtomicLong SAVED = new AtomicLong();
+
+    private static final Map<String, RequestFactory> OPERATIONS = Map.of(
+            "getStudent", (base, roster, random) ->
+                    get(base, "/students/" + pick(roster.studentIds(), random)),
+            "getStudentTeachers", (base, roster, random) ->
+                    get(base, "/students/" + pick(roster.studentIds(), random) + "/getTeachers"),
+            "getTeacherStudents", (base, roster, random) ->
+                    get(base, "/teachers/" + pick(roster.teacherIds(), random) + "/getStudents"),
+            "pageStudents", (base, roster, random) ->
+                    get(base, "/students/all/" + randomPage(roster.studentIds(), random) + "/20"),
+            "pageTeachersSorted", (base, roster, random) ->
+                    get(base, "/teachers/all/" + randomPage(roster.teacherIds(), random) + "/20/lastName"),
+            "filterStudents", (base, roster, random) ->
+                    get(base, "/students/filterByLastName/" + pick(roster.lastNames(), random)),
+            "batchStudents", (base, roster, random) ->
+                    get(base, "/students/batch?ids=" + Stream.generate(() -> pick(roster.studentIds(), random))
+                            .limit(50).map(String::valueOf).collect(Collectors.joining(","))),
+            "saveStudent", (base, roster, random) -> {
+                long n = SAVED.incrementAndGet();
+                String body = "{\"firstName\":\"Load\",\"lastName\":\"" + pick(roster.lastNames(), random)
+                        + "\",\"age\":" + (18 + random.nextInt(10)) + ",\"email\":\"load" + n
+                        + "@school.com\",\"specialization\":\"Physics\"}";
+                return HttpRequest.newBuilder(base.resolve("/students/save")).timeout(TIMEOUT)
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(body)).build();
+            },
+            "addTeacher", (base, roster, random) ->
+                    HttpRequest.newBuilder(base.resolve("/students/" + pick(roster.studentIds(), random)
+                                    + "/addTeacher/" + pick(roster.teacherIds(), random))).timeout(TIMEOUT)
+                            .PUT(HttpRequest.BodyPublishers.noBody()).build());
+
+    private final URI base;
+    private final Roster roster;
+    private final List<String> names = new ArrayList<>();
+    private final List<RequestFactory> factories = new ArrayList<>();
+    private final int[] cumulativeWeights;
+
+    private LoadMix(URI base, Roster roster, Map<String, Integer> weights) {
+        this.base = base;
+        this.roster = roster;
+        this.cumulativeWeights = new int[weights.size()];
+        int total = 0;
+        for (Map.Entry<String, Integer> weight : weights.entrySet()) {
+            total += weight.getValue();
+            cumulativeWeights[names.size()] = total;
+            names.add(weight.getKey());
+            factories.add(OPERATIONS.get(weight.getKey()));
+        }
+    }
+
+    /**
+     * Parses a mix specification.
+     *
+     * @param spec   comma separated {@code operation=weight} pairs
+     * @param base   the application base uri
+     * @param roster the seeded roster
+     * @return the mix
+     */
+    static LoadMix parse(String spec, URI base, Roster roster) {
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        for (String pair : spec.split(",")) {
+            String[] parts = pair.trim().split("=");
+            if (parts.length != 2 || !OPERATIONS.containsKey(parts[0])) {
+                throw new IllegalArgumentException("Unknown load mix entry '" + pair + "', expected one of "
+                        + OPERATIONS.keySet());
+            }
+            int weight = Integer.parseInt(parts[1]);
+            if (weight > 0) {
+                weights.put(parts[0], weight);
+            }
+        }
+        if (weights.isEmpty()) {
+            throw new IllegalArgumentException("The load mix should not be empty");
+        }
+        return new LoadMix(base, roster, weights);
+    }
+
+    List<String> names() {
+        return names;
+    }
+
+    /**
+     * Picks the next operation by weight.
+     *
+     * @param random the dispatcher random
+     * @return the operation index, see {@link #names()}
+     */
+    int next(Random random) {
+        int roll = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        int index = 0;
+        while (roll >= cumulativeWeights[index]) {
+            index++;
+        }
+        return index;
+    }
+
+    HttpRequest request(int operation, Random random) {
+        return factories.get(operation).create(base, roster, random);
+    }
+
+    private static HttpRequest get(URI base, String path) {
+        return HttpRequest.newBuilder(base.resolve(path)).timeout(TIMEOUT).GET().build();
+    }
+
+    private static int randomPage(List<Long> ids, Random random) {
+        return random.nextInt(Math.max(1, ids.size() / 20));
+    }
+
+    private static <T> T pick(List<T> values, Random random) {
+        return values.get(random.nextInt(values.size()));
+    }
+
+    @FunctionalInterface
+    private interface RequestFactory {
+        HttpRequest create(URI base, Roster roster, Random random);
+    }
+}
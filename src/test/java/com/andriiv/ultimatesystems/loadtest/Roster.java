@@ -0,0 +1,11 @@
+package com.andriiv.ultimatesystems.loadtest;
+
+import java.util.List;
+
+/**
+ * Ids and names of the seeded roster, used to build requests that hit existing rows.
+ *
+ * @author Roman_Andriiv
+ */
+record Roster(List<Long> studentIds, List<Long> teacherIds, List<String> lastNames) {
+}
@@ -0,0 +1,191 @@
+package com.andriiv.ultimatesystems.loadtest;
+
+import com.andriiv.ultimatesystems.entity.Student;
+import com.andriiv.ultimatesystems.entity.Teacher;
+import com.andriiv.ultimatesystems.repository.StudentRepository;
+import com.andriiv.ultimatesystems.repository.TeacherRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Open-loop load generator for the student and teacher endpoints.
+ * <p>
+ * Starts the application on an in-memory H2 database seeded with a roster and sends the configured
+ * mix at a fixed arrival rate. Latency is measured from the moment a request was scheduled to start,
+ * not from when it was actually sent, so a stalled server is not hidden by a stalled generator
+ * (coordinated omission). The run fails when more than {@code loadtest.max-errors} requests failed or,
+ * if {@code loadtest.max-p99-ms} is set, when the p99 of an operation is above it. Runs only with
+ * {@code mvn -Ploadtest test}; the report is written to {@code target/loadtest}.
+ *
+ * @author Roman_Andriiv
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.url=jdbc:h2:mem:loadtest;DB_CLOSE_DELAY=-1",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false"})
+class RosterLoadGenerator {
+
+    private static final String[] FIRST_NAMES = {"Anna", "Bohdan", "Daria", "Ivan", "Kateryna", "Mykola",
+            "Olena", "Petro", "Sofia", "Taras"};
+    private static final String[] LAST_NAMES = {"Andriiv", "Bondar", "Hnatiuk", "Kovalenko", "Kravets",
+            "Lysenko", "Melnyk", "Shevchenko", "Tkachenko", "Zaiets"};
+    private static final String[] SPECIALIZATIONS = {"Mathematics", "Physics", "History", "Biology", "Economics"};
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private StudentRepository studentRepository;
+
+    @Autowired
+    private TeacherRepository teacherRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${loadtest.students:5000}")
+    private int studentCount;
+
+    @Value("${loadtest.teachers:200}")
+    private int teacherCount;
+
+    @Value("${loadtest.teachers-per-student:4}")
+    private int teachersPerStudent;
+
+    @Value("${loadtest.rate:200}")
+    private double rate;
+
+    @Value("${loadtest.warmup-seconds:10}")
+    private int warmupSeconds;
+
+    @Value("${loadtest.duration-seconds:60}")
+    private int durationSeconds;
+
+    @Value("${loadtest.mix:" + LoadMix.DEFAULT + "}")
+    private String mixSpec;
+
+    @Value("${loadtest.max-p99-ms:0}")
+    private double maxP99Millis;
+
+    @Value("${loadtest.max-errors:0}")
+    private long maxErrors;
+
+    private final Random random = new Random(42);
+
+    @Test
+    void generateLoad() throws Exception {
+        Roster roster = seed();
+        LoadMix mix = LoadMix.parse(mixSpec, URI.create("http://localhost:" + port), roster);
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+
+        run(client, mix, Duration.ofSeconds(warmupSeconds));
+        LatencyReport report = run(client, mix, Duration.ofSeconds(durationSeconds));
+
+        System.out.printf("%nLoad test: %.0f req/s for %d s over %d students and %d teachers%n",
+                rate, durationSeconds, studentCount, teacherCount);
+        report.print(System.out);
+        report.write(Path.of("target", "loadtest"));
+
+        //failed requests are not in the latency histograms, so a p99 alone would pass a failing server
+        assertTrue(report.errorCount() <= maxErrors,
+                report.errorCount() + " requests failed, at most " + maxErrors + " are allowed");
+        if (maxP99Millis > 0) {
+            for (String operation : mix.names()) {
+                assertTrue(report.p99Millis(operation) <= maxP99Millis,
+                        operation + " p99 is above " + maxP99Millis + " ms");
+            }
+        }
+    }
+
+    private LatencyReport run(HttpClient client, LoadMix mix, Duration duration) throws Exception {
+        LatencyReport report = new LatencyReport(mix.names());
+        List<CompletableFuture<?>> requests = new ArrayList<>();
+
+        long period = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+
+        for (long intendedStart = start; intendedStart < end; intendedStart += period) {
+            long wait;
+            while ((wait = intendedStart - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            int operation = mix.next(random);
+            String name = mix.names().get(operation);
+            long scheduledAt = intendedStart;
+
+            requests.add(client.sendAsync(mix.request(operation, random), HttpResponse.BodyHandlers.discarding())
+                    .handle((response, error) -> {
+                        report.record(name, System.nanoTime() - scheduledAt,
+                                error == null && response.statusCode() < 400);
+                        return null;
+                    }));
+        }
+        CompletableFuture.allOf(requests.toArray(CompletableFuture[]::new)).get(1, TimeUnit.MINUTES);
+        return report;
+    }
+
+    private Roster seed() {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        return transaction.execute(status -> {
+            List<Teacher> teachers = new ArrayList<>(teacherCount);
+            for (int i = 0; i < teacherCount; i++) {
+                Teacher teacher = new Teacher();
+                teacher.setFirstName(pick(FIRST_NAMES));
+                teacher.setLastName(pick(LAST_NAMES));
+                teacher.setAge(25 + random.nextInt(40));
+                teacher.setEmail("teacher" + i + "@school.com");
+                teacher.setSubject(pick(SPECIALIZATIONS));
+                teachers.add(teacher);
+            }
+            teacherRepository.saveAll(teachers);
+
+            List<Student> students = new ArrayList<>(studentCount);
+            for (int i = 0; i < studentCount; i++) {
+                Student student = new Student();
+                student.setFirstName(pick(FIRST_NAMES));
+                student.setLastName(pick(LAST_NAMES));
+                student.setAge(18 + random.nextInt(12));
+                student.setEmail("student" + i + "@school.com");
+                student.setSpecialization(pick(SPECIALIZATIONS));
+
+                Set<Integer> enrolled = new HashSet<>();
+                while (enrolled.size() < Math.min(teachersPerStudent, teacherCount)) {
+                    enrolled.add(random.nextInt(teacherCount));
+                }
+                student.setTeachers(enrolled.stream().map(teachers::get).collect(Collectors.toList()));
+                students.add(student);
+            }
+            studentRepository.saveAll(students);
+
+            return new Roster(students.stream().map(Student::getId).toList(),
+                    teachers.stream().map(Teacher::getId).toList(), List.of(LAST_NAMES));
+        });
+    }
+
+    private String pick(String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+}
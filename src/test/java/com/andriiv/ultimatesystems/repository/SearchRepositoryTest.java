@@ -0,0 +1,145 @@
+package com.andriiv.ultimatesystems.repository;
+
+import com.andriiv.ultimatesystems.dto.StudentSearchCriteria;
+import com.andriiv.ultimatesystems.dto.TeacherSearchCriteria;
+import com.andriiv.ultimatesystems.entity.Student;
+import com.andriiv.ultimatesystems.entity.Teacher;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class SearchRepositoryTest {
+
+    @Autowired
+    private StudentRepository studentRepository;
+
+    @Autowired
+    private TeacherRepository teacherRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private Teacher tom;
+    private Teacher una;
+    private Student ann;
+    private Student bob;
+
+    @BeforeEach
+    void saveRoster() {
+        tom = teacherRepository.save(teacher("Tom"));
+        una = teacherRepository.save(teacher("Una"));
+        ann = studentRepository.save(student("Ann"));
+        bob = studentRepository.save(student("Bob"));
+        studentRepository.save(student("Cid"));
+        entityManager.flush();
+        //students_teachers has no primary key, so a link can be stored twice
+        link(ann, tom);
+        link(ann, tom);
+        link(bob, tom);
+        link(bob, una);
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void studentsOfTeacherAreNotRepeatedByDuplicatedLinks() {
+        StudentSearchCriteria criteria = new StudentSearchCriteria();
+        criteria.setTeacherId(tom.getId());
+
+        Slice<Student> students = studentRepository.search(criteria, PageRequest.of(0, 10), true);
+
+        assertEquals(List.of(ann.getId(), bob.getId()), students.map(Student::getId).getContent());
+        assertEquals(2, ((Page<Student>) students).getTotalElements());
+        assertEquals(List.of(ann.getId()), studentRepository.searchIds(criteria(tom.getId(), "Ann")));
+        //the teacher id is bound, so every teacher shares one statement
+        assertTrue(statistics.getQueries().length > 0);
+        assertTrue(Arrays.stream(statistics.getQueries()).allMatch(query -> query.contains(":teacherId")));
+    }
+
+    @Test
+    void teachersOfStudentAreNotRepeatedByDuplicatedLinks() {
+        TeacherSearchCriteria criteria = new TeacherSearchCriteria();
+        criteria.setStudentId(ann.getId());
+
+        Slice<Teacher> teachers = teacherRepository.search(criteria, PageRequest.of(0, 10), true);
+
+        assertEquals(List.of(tom.getId()), teachers.map(Teacher::getId).getContent());
+        assertEquals(1, ((Page<Teacher>) teachers).getTotalElements());
+        assertTrue(Arrays.stream(statistics.getQueries()).allMatch(query -> query.contains(":studentId")));
+    }
+
+    @Test
+    void sliceWithoutTotalRunsNoCountQuery() {
+        Slice<Student> students = studentRepository.search(new StudentSearchCriteria(), PageRequest.of(0, 2), false);
+
+        assertEquals(List.of(ann.getId(), bob.getId()), students.map(Student::getId).getContent());
+        assertTrue(students.hasNext());
+        assertFalse(students instanceof Page);
+        assertEquals(1, statistics.getQueryExecutionCount());
+    }
+
+    @Test
+    void sliceWithTotalRunsOneCountQuery() {
+        Slice<Student> students = studentRepository.search(new StudentSearchCriteria(), PageRequest.of(1, 2), true);
+
+        assertEquals(3, ((Page<Student>) students).getTotalElements());
+        assertFalse(students.hasNext());
+        assertEquals(2, statistics.getQueryExecutionCount());
+    }
+
+    private void link(Student student, Teacher teacher) {
+        jdbcTemplate.update("insert into students_teachers (student_id, teacher_id) values (?, ?)",
+                student.getId(), teacher.getId());
+    }
+
+    private static StudentSearchCriteria criteria(Long teacherId, String firstName) {
+        StudentSearchCriteria criteria = new StudentSearchCriteria();
+        criteria.setTeacherId(teacherId);
+        criteria.setFirstName(firstName);
+        return criteria;
+    }
+
+    private static Teacher teacher(String name) {
+        Teacher teacher = new Teacher();
+        teacher.setFirstName(name);
+        teacher.setLastName("Teacher");
+        teacher.setAge(40);
+        teacher.setEmail(name.toLowerCase() + "@school.com");
+        return teacher;
+    }
+
+    private static Student student(String name) {
+        Student student = new Student();
+        student.setFirstName(name);
+        student.setLastName("Student");
+        student.setAge(20);
+        student.setEmail(name.toLowerCase() + "@example.com");
+        return student;
+    }
+}
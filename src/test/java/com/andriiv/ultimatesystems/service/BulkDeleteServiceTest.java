@@ -0,0 +1,145 @@
+package com.andriiv.ultimatesystems.service;
+
+import com.andriiv.ultimatesystems.cache.CacheInvalidationBus;
+import com.andriiv.ultimatesystems.dto.BulkDeleteResponse;
+import com.andriiv.ultimatesystems.entity.Student;
+import com.andriiv.ultimatesystems.entity.Teacher;
+import com.andriiv.ultimatesystems.repository.StudentRepository;
+import com.andriiv.ultimatesystems.repository.TeacherRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.verify;
+
+//the service commits on its own, so that the cache invalidation registered for after the commit runs
+@DataJpaTest(properties = "bulk.delete.chunk-size=1")
+@Import({BulkDeleteService.class, RosterCacheKeys.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class BulkDeleteServiceTest {
+
+    @Autowired
+    private BulkDeleteService bulkDeleteService;
+
+    @Autowired
+    private StudentRepository studentRepository;
+
+    @Autowired
+    private TeacherRepository teacherRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @MockBean
+    private CacheInvalidationBus cacheInvalidationBus;
+
+    private Teacher tom;
+    private Teacher una;
+    private Student ann;
+    private Student bob;
+    private Student cid;
+
+    @BeforeEach
+    void saveRoster() {
+        tom = teacherRepository.save(teacher("Tom"));
+        una = teacherRepository.save(teacher("Una"));
+        ann = studentRepository.save(student("Ann"));
+        bob = studentRepository.save(student("Bob"));
+        cid = studentRepository.save(student("Cid"));
+        link(ann, tom);
+        link(bob, tom);
+        link(bob, una);
+        link(cid, una);
+    }
+
+    @AfterEach
+    void deleteRoster() {
+        jdbcTemplate.update("delete from students_teachers");
+        jdbcTemplate.update("delete from students");
+        jdbcTemplate.update("delete from teachers");
+    }
+
+    @Test
+    void deletingStudentsRemovesOnlyTheirRowsAndLinks() {
+        BulkDeleteResponse response = bulkDeleteService.deleteStudents(List.of(ann.getId(), bob.getId(), ann.getId()));
+
+        assertEquals(2, response.getDeleted());
+        assertEquals(3, response.getDeletedLinks());
+        assertEquals(List.of(cid.getId()), ids("select id from students"));
+        assertEquals(2, teacherRepository.count());
+        assertEquals(List.of(cid.getId()), ids("select student_id from students_teachers"));
+
+        Collection<String> keys = invalidatedKeys();
+        assertTrue(keys.contains("students/" + ann.getId()));
+        assertTrue(keys.contains("teachers/" + una.getId() + "/getStudents"));
+        //cid shares una with bob, so its teacher list rendered bob
+        assertTrue(keys.contains("students/" + cid.getId() + "/getTeachers"));
+        assertFalse(keys.contains("students/" + cid.getId()));
+    }
+
+    @Test
+    void deletingTeachersRemovesOnlyTheirRowsAndLinks() {
+        BulkDeleteResponse response = bulkDeleteService.deleteTeachers(List.of(tom.getId()));
+
+        assertEquals(1, response.getDeleted());
+        assertEquals(2, response.getDeletedLinks());
+        assertEquals(List.of(una.getId()), ids("select id from teachers"));
+        assertEquals(3, studentRepository.count());
+        assertEquals(List.of(una.getId(), una.getId()), ids("select teacher_id from students_teachers"));
+
+        Collection<String> keys = invalidatedKeys();
+        assertTrue(keys.contains("teachers/" + tom.getId()));
+        assertTrue(keys.contains("students/" + bob.getId() + "/getTeachers"));
+        //una shares bob with tom, so its student list rendered tom
+        assertTrue(keys.contains("teachers/" + una.getId() + "/getStudents"));
+        assertFalse(keys.contains("teachers/" + una.getId()));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Collection<String> invalidatedKeys() {
+        ArgumentCaptor<Collection<String>> keys = ArgumentCaptor.forClass(Collection.class);
+        verify(cacheInvalidationBus).invalidate(keys.capture());
+        return keys.getValue();
+    }
+
+    private List<Long> ids(String sql) {
+        return jdbcTemplate.queryForList(sql + " order by 1", Long.class);
+    }
+
+    private void link(Student student, Teacher teacher) {
+        jdbcTemplate.update("insert into students_teachers (student_id, teacher_id) values (?, ?)",
+                student.getId(), teacher.getId());
+    }
+
+    private static Teacher teacher(String name) {
+        Teacher teacher = new Teacher();
+        teacher.setFirstName(name);
+        teacher.setLastName("Teacher");
+        teacher.setAge(40);
+        teacher.setEmail(name.toLowerCase() + "@school.com");
+        return teacher;
+    }
+
+    private static Student student(String name) {
+        Student student = new Student();
+        student.setFirstName(name);
+        student.setLastName("Student");
+        student.setAge(20);
+        student.setEmail(name.toLowerCase() + "@example.com");
+        return student;
+    }
+}
@@ -0,0 +1,30 @@
+package com.andriiv.ultimatesystems.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class IdChunksTest {
+
+    @Test
+    void splitKeepsOrderAndRemainder() {
+        List<List<Long>> chunks = IdChunks.split(IdChunks.distinct(List.of(1L, 2L, 1L, 3L, 4L, 5L)), 2);
+
+        assertEquals(List.of(List.of(1L, 2L), List.of(3L, 4L), List.of(5L)), chunks);
+    }
+
+    @Test
+    void emptyIdsHaveNoChunks() {
+        assertEquals(List.of(), IdChunks.split(List.of(), 500));
+    }
+
+    @Test
+    void chunkSizeBelowOneIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> IdChunks.checkSize(0, "bulk.delete.chunk-size"));
+        assertThrows(IllegalArgumentException.class,
+                () -> new BatchLookupService(null, null, -1));
+    }
+}
@@ -0,0 +1,66 @@
+package com.andriiv.ultimatesystems.service;
+
+import com.andriiv.ultimatesystems.repository.StudentRepository;
+import com.andriiv.ultimatesystems.repository.TeacherRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Roster: teacher 1 teaches students 2 and 3, teacher 2 teaches student 2.
+ */
+class RosterCacheKeysTest {
+
+    private final StudentRepository studentRepository = mock(StudentRepository.class);
+    private final TeacherRepository teacherRepository = mock(TeacherRepository.class);
+    private final RosterCacheKeys rosterCacheKeys = new RosterCacheKeys(studentRepository, teacherRepository);
+
+    private static final List<long[]> LINKS = List.of(new long[]{2, 1}, new long[]{3, 1}, new long[]{2, 2});
+
+    @BeforeEach
+    void linkRoster() {
+        when(teacherRepository.findStudentIds(anyCollection()))
+                .thenAnswer(invocation -> linked(invocation.getArgument(0), 1, 0));
+        when(studentRepository.findTeacherIds(anyCollection()))
+                .thenAnswer(invocation -> linked(invocation.getArgument(0), 0, 1));
+    }
+
+    @Test
+    void addedLinkEvictsTeacherListsOfCoStudents() {
+        Set<String> keys = rosterCacheKeys.links(List.of(3L), List.of(1L));
+
+        //students/2/getTeachers renders teacher 1 together with its students
+        assertTrue(keys.contains("students/2/getTeachers"));
+        assertTrue(keys.containsAll(Set.of("students/3", "students/3/getTeachers", "teachers/1", "teachers/1/getStudents")));
+    }
+
+    @Test
+    void renamedTeacherEvictsStudentListsOfCoTeachers() {
+        Set<String> keys = rosterCacheKeys.teachers(List.of(1L));
+
+        //teachers/2/getStudents renders student 2 together with its teachers, teacher 1 included
+        assertTrue(keys.contains("teachers/2/getStudents"));
+        assertTrue(keys.containsAll(Set.of("students/2", "students/3", "teachers/1")));
+    }
+
+    @Test
+    void changedStudentEvictsTeacherListsOfCoStudents() {
+        Set<String> keys = rosterCacheKeys.students(List.of(3L));
+
+        assertEquals(Set.of("students/3", "students/3/getTeachers", "teachers/1", "teachers/1/getStudents",
+                "students/2/getTeachers"), keys);
+    }
+
+    private static List<Long> linked(Collection<Long> ids, int from, int to) {
+        return LINKS.stream().filter(link -> ids.contains(link[from])).map(link -> link[to]).distinct().toList();
+    }
+}
@@ -0,0 +1,108 @@
+package com.andriiv.ultimatesystems.snapshot;
+
+import com.andriiv.ultimatesystems.entity.Student;
+import com.andriiv.ultimatesystems.entity.Teacher;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.InvalidDataAccessResourceUsageException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.andriiv.ultimatesystems.snapshot.SnapshotFixture.row;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RosterSnapshotStoreTest {
+
+    @TempDir
+    Path directory;
+
+    private final AtomicInteger databaseReads = new AtomicInteger();
+
+    private RosterSnapshotStore store;
+
+    @BeforeEach
+    void writeSnapshot() throws IOException {
+        //no teachers, to read an empty roster
+        store = new SnapshotFixture()
+                .students(row(1L, "Ann", "Lee", 20, "ann@example.com", "Math"))
+                .write(directory.resolve("roster.snapshot"), 60000);
+    }
+
+    @Test
+    void databaseIsUsedWhileItAnswers() {
+        ResponseEntity<Student> response = store.read(this::databaseStudent, snapshot -> snapshot.findStudent(1));
+
+        assertEquals("Database", response.getBody().getFirstName());
+        assertNull(response.getHeaders().getFirst(RosterSnapshotStore.AGE_HEADER));
+    }
+
+    @Test
+    void failedDatabaseIsSkippedUntilRetry() {
+        ResponseEntity<Student> first = store.read(this::failingDatabase, snapshot -> snapshot.findStudent(1));
+        ResponseEntity<Student> second = store.read(this::databaseStudent, snapshot -> snapshot.findStudent(1));
+
+        assertEquals(1, databaseReads.get());
+        assertEquals("Ann", first.getBody().getFirstName());
+        assertEquals("Ann", second.getBody().getFirstName());
+        assertTrue(second.getHeaders().containsKey(RosterSnapshotStore.AGE_HEADER));
+    }
+
+    @Test
+    void databaseIsProbedAgainAfterRetryInterval() {
+        RosterSnapshotStore retrying = new RosterSnapshotStore(store.getPath().toString(), 0);
+        retrying.load();
+
+        retrying.read(this::failingDatabase, snapshot -> snapshot.findStudent(1));
+        ResponseEntity<Student> response = retrying.read(this::databaseStudent, snapshot -> snapshot.findStudent(1));
+
+        assertEquals(2, databaseReads.get());
+        assertEquals("Database", response.getBody().getFirstName());
+    }
+
+    @Test
+    void otherDatabaseErrorsAreRethrownWithoutOpeningCircuit() {
+        assertThrows(InvalidDataAccessResourceUsageException.class, () -> store.read(() -> {
+            databaseReads.incrementAndGet();
+            throw new InvalidDataAccessResourceUsageException("column \"email\" does not exist");
+        }, snapshot -> snapshot.findStudent(1)));
+        ResponseEntity<Student> response = store.read(this::databaseStudent, snapshot -> snapshot.findStudent(1));
+
+        assertEquals(2, databaseReads.get());
+        assertEquals("Database", response.getBody().getFirstName());
+    }
+
+    @Test
+    void readMissingFromSnapshotIsNotFoundLikeDatabase() {
+        ResponseEntity<Student> missing = store.read(this::failingDatabase, snapshot -> snapshot.findStudent(2));
+        ResponseEntity<List<Teacher>> empty = store.read(this::failingDatabase,
+                snapshot -> Optional.of(snapshot.allTeachers()).filter(teachers -> !teachers.isEmpty()));
+
+        assertEquals(HttpStatus.NOT_FOUND, missing.getStatusCode());
+        assertEquals(HttpStatus.NOT_FOUND, empty.getStatusCode());
+        assertNull(empty.getBody());
+        assertTrue(empty.getHeaders().containsKey(RosterSnapshotStore.AGE_HEADER));
+    }
+
+    private ResponseEntity<Student> databaseStudent() {
+        databaseReads.incrementAndGet();
+        Student student = new Student();
+        student.setFirstName("Database");
+        return new ResponseEntity<>(student, HttpStatus.OK);
+    }
+
+    private <T> ResponseEntity<T> failingDatabase() {
+        databaseReads.incrementAndGet();
+        throw new DataAccessResourceFailureException("Connection is not available");
+    }
+}
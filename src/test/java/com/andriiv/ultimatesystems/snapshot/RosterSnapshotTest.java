@@ -0,0 +1,129 @@
+package com.andriiv.ultimatesystems.snapshot;
+
+import com.andriiv.ultimatesystems.entity.Student;
+import com.andriiv.ultimatesystems.entity.Teacher;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.transaction.TransactionDefinition;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.andriiv.ultimatesystems.snapshot.SnapshotFixture.row;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.verify;
+
+class RosterSnapshotTest {
+
+    @TempDir
+    Path directory;
+
+    private Path path;
+
+    private final SnapshotFixture fixture = new SnapshotFixture();
+
+    @BeforeEach
+    void writeSnapshot() throws IOException {
+        fixture.students(
+                row(1L, "Ann", "Lee", 20, "ann@example.com", null),
+                row(2L, "Bob", null, 21, null, "Math"),
+                row(3L, "Cid", "Roe", 22, "cid@example.com", "Art"));
+        //students_teachers has no primary key, so a link can be stored twice; teacher 99 no longer exists
+        fixture.studentLinks(row(1L, 10L), row(1L, 10L), row(1L, 11L), row(2L, 11L), row(2L, 99L));
+        fixture.teachers(
+                row(10L, "Tom", "Fox", 40, "tom@example.com", "Math"),
+                row(11L, "Una", null, 50, null, null));
+        fixture.teacherLinks(row(10L, 1L), row(10L, 1L), row(11L, 1L), row(11L, 2L));
+
+        path = directory.resolve("roster.snapshot");
+        fixture.write(path, 5000);
+    }
+
+    @Test
+    void rowsAreReadInOneRepeatableReadTransaction() {
+        ArgumentCaptor<TransactionDefinition> definition = ArgumentCaptor.forClass(TransactionDefinition.class);
+        verify(fixture.transactionManager).getTransaction(definition.capture());
+
+        assertEquals(TransactionDefinition.ISOLATION_REPEATABLE_READ, definition.getValue().getIsolationLevel());
+        assertTrue(definition.getValue().isReadOnly());
+    }
+
+    @Test
+    void studentRoundTripKeepsNullsAndLinks() throws IOException {
+        RosterSnapshot snapshot = RosterSnapshot.open(path);
+
+        Student ann = snapshot.findStudent(1).orElseThrow();
+        assertEquals("Ann", ann.getFirstName());
+        assertEquals("Lee", ann.getLastName());
+        assertEquals(20, ann.getAge());
+        assertEquals("ann@example.com", ann.getEmail());
+        assertNull(ann.getSpecialization());
+        assertEquals(List.of(10L, 10L, 11L), teacherIds(ann.getTeachers()));
+
+        Student bob = snapshot.findStudent(2).orElseThrow();
+        assertNull(bob.getLastName());
+        assertNull(bob.getEmail());
+        assertEquals("Math", bob.getSpecialization());
+        assertEquals(List.of(11L), teacherIds(bob.getTeachers()));
+
+        assertTrue(snapshot.findStudent(3).orElseThrow().getTeachers().isEmpty());
+    }
+
+    @Test
+    void teacherEmbedsItsStudents() throws IOException {
+        RosterSnapshot snapshot = RosterSnapshot.open(path);
+
+        Teacher una = snapshot.findTeacher(11).orElseThrow();
+        assertNull(una.getLastName());
+        assertNull(una.getSubject());
+        assertEquals(List.of("Ann", "Bob"), una.getStudents().stream().map(Student::getFirstName).toList());
+        //linked entities are decoded without their own links
+        assertNull(una.getStudents().get(0).getTeachers());
+
+        assertEquals("tom@example.com", snapshot.findTeacher(10).orElseThrow().getEmail());
+    }
+
+    @Test
+    void missingIdsAreEmpty() throws IOException {
+        RosterSnapshot snapshot = RosterSnapshot.open(path);
+
+        assertTrue(snapshot.findStudent(0).isEmpty());
+        assertTrue(snapshot.findStudent(4).isEmpty());
+        assertTrue(snapshot.findTeacher(12).isEmpty());
+        assertEquals(3, snapshot.allStudents().size());
+        assertEquals(2, snapshot.allTeachers().size());
+    }
+
+    @Test
+    void truncatedFileIsRejected() throws IOException {
+        byte[] bytes = Files.readAllBytes(path);
+        Files.write(path, Arrays.copyOf(bytes, bytes.length - 1));
+
+        assertThrows(IOException.class, () -> RosterSnapshot.open(path));
+    }
+
+    @Test
+    void indexOutOfBoundsIsRejected() throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            //the student count in the footer
+            channel.write(ByteBuffer.allocate(4).putInt(0, 1_000_000), channel.size() - RosterSnapshot.FOOTER_SIZE + 8);
+        }
+
+        assertThrows(IOException.class, () -> RosterSnapshot.open(path));
+    }
+
+    private static List<Long> teacherIds(List<Teacher> teachers) {
+        return teachers.stream().map(Teacher::getId).toList();
+    }
+}
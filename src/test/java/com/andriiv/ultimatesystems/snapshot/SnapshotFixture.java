@@ -0,0 +1,67 @@
+package com.andriiv.ultimatesystems.snapshot;
+
+import com.andriiv.ultimatesystems.repository.StudentRepository;
+import com.andriiv.ultimatesystems.repository.TeacherRepository;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Writes a roster snapshot from mocked repository rows; every table is empty unless rows are given.
+ */
+final class SnapshotFixture {
+
+    final StudentRepository studentRepository = mock(StudentRepository.class);
+    final TeacherRepository teacherRepository = mock(TeacherRepository.class);
+    final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+
+    SnapshotFixture() {
+        students();
+        studentLinks();
+        teachers();
+        teacherLinks();
+    }
+
+    SnapshotFixture students(Object[]... rows) {
+        when(studentRepository.streamSnapshotRows()).thenReturn(Stream.of(rows));
+        return this;
+    }
+
+    SnapshotFixture studentLinks(Object[]... rows) {
+        when(studentRepository.streamSnapshotTeacherLinks()).thenReturn(Stream.of(rows));
+        return this;
+    }
+
+    SnapshotFixture teachers(Object[]... rows) {
+        when(teacherRepository.streamSnapshotRows()).thenReturn(Stream.of(rows));
+        return this;
+    }
+
+    SnapshotFixture teacherLinks(Object[]... rows) {
+        when(teacherRepository.streamSnapshotStudentLinks()).thenReturn(Stream.of(rows));
+        return this;
+    }
+
+    /**
+     * Writes the snapshot and maps it in a new store.
+     *
+     * @param path    the snapshot file
+     * @param retryMs the database retry interval of the store
+     * @return the store with the snapshot mapped
+     * @throws IOException if the file cannot be written
+     */
+    RosterSnapshotStore write(Path path, long retryMs) throws IOException {
+        RosterSnapshotStore store = new RosterSnapshotStore(path.toString(), retryMs);
+        new RosterSnapshotWriter(studentRepository, teacherRepository, store, transactionManager, true).write();
+        return store;
+    }
+
+    static Object[] row(Object... values) {
+        return values;
+    }
+}